@@ -30,9 +30,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map.Entry;
 import java.util.Stack;
-import java.util.TreeMap;
 import java.util.TreeSet;
 
 
@@ -67,39 +65,6 @@ public class MDAG
     //Enum containing fields collectively denoting the set of all conditions that can be applied to a search on the MDAG
     private static enum SearchCondition {
         NO_SEARCH_CONDITION, PREFIX_SEARCH_CONDITION, SUBSTRING_SEARCH_CONDITION, SUFFIX_SEARCH_CONDITION;
-
-        /**
-         * Determines whether two Strings have a given type of relationship.
-
-         * @param processingString      a String
-         * @param conditionString       a String
-         * @param searchCondition       an int denoting the type of condition to be satisfied
-         * @return                      true if {@code processingString} has a relationship with
-         *                              {@code conditionString} described by the condition
-         *                              represented by {@code searchCondition}
-         */
-        public boolean satisfiesCondition(String str1, String str2)
-        {
-            boolean satisfiesSearchCondition;
-
-            switch(this)
-            {
-                case PREFIX_SEARCH_CONDITION:
-                    satisfiesSearchCondition = (str1.startsWith(str2));
-                    break;
-                case SUBSTRING_SEARCH_CONDITION:
-                    satisfiesSearchCondition = (str1.contains(str2));
-                    break;
-                case SUFFIX_SEARCH_CONDITION:
-                    satisfiesSearchCondition = (str1.endsWith(str2));
-                    break;
-                default:
-                    satisfiesSearchCondition = true;
-                    break;
-            }
-
-            return satisfiesSearchCondition;
-        }
     };
     /////
 
@@ -263,7 +228,7 @@ public class MDAG
         while(!transitionPathNodeStack.isEmpty())
         {
             MDAGNode currentNode = transitionPathNodeStack.peek();
-            if(currentNode.getOutgoingTransitions().size() <= 1 && !currentNode.isAcceptNode())
+            if(currentNode.getOutgoingTransitionCount() <= 1 && !currentNode.isAcceptNode())
                 transitionPathNodeStack.pop();
             else
                 break;
@@ -644,15 +609,14 @@ public class MDAG
 
         onePastLastCreatedTransitionSetIndex += node.getOutgoingTransitionCount();
 
-        //Create a SimpleMDAGNode representing each transition label/target combo in transitionTreeMap, recursively calling this method (if necessary)
+        //Create a SimpleMDAGNode representing each transition label/target combo of node, recursively calling this method (if necessary)
         //to set indices in these SimpleMDAGNodes that the set of transitions emitting from their respective transition targets starts from.
-        TreeMap<Character, MDAGNode> transitionTreeMap = node.getOutgoingTransitions();
-        for(Entry<Character, MDAGNode> transitionKeyValuePair : transitionTreeMap.entrySet())
+        for(int i = 0; i < node.getOutgoingTransitionCount(); i++)
         {
             //Use the current transition's label and target node to create a SimpleMDAGNode
             //(which is a space-saving representation of the transition), and insert it in to mdagDataArray
-            char transitionLabelChar = transitionKeyValuePair.getKey();
-            MDAGNode transitionTargetNode = transitionKeyValuePair.getValue();
+            char transitionLabelChar = node.getOutgoingTransitionLabel(i);
+            MDAGNode transitionTargetNode = node.getOutgoingTransitionTarget(i);
             mdagDataArray[pivotIndex] = new SimpleMDAGNode(transitionLabelChar, transitionTargetNode.isAcceptNode(), transitionTargetNode.getOutgoingTransitionCount());
             /////
 
@@ -715,69 +679,227 @@ public class MDAG
 
 
     /**
-     * Retrieves Strings corresponding to all valid transition paths from a given node that satisfy a given condition.
-
-     * @param strHashSet                a HashSet of Strings to contain all those in the MDAG satisfying
-     *                                  {@code searchCondition} with {@code conditionString}
-     * @param searchCondition           the SearchCondition enum field describing the type of relationship that Strings contained in the MDAG 
-     *                                  must have with {@code conditionString} in order to be included in the result set
-     * @param searchConditionString     the String that all Strings in the MDAG must be related with in the fashion denoted 
-     *                                  by {@code searchCondition} in order to be included in the result set
-     * @param prefixString              the String corresponding to the currently traversed transition path
-     * @param transitionTreeMap         a TreeMap of Characters to MDAGNodes collectively representing an MDAGNode's transition set
+     * Walks the transition paths below a node in lexicographic order, keeping the current path in a reusable
+     * char array, and passes each accepted path satisfying the search condition to a visitor.
      */
-    private void getStrings(HashSet<String> strHashSet, SearchCondition searchCondition, String searchConditionString, String prefixString, TreeMap<Character, MDAGNode> transitionTreeMap)
+    private class Traversal
     {
-        //Traverse all the valid transition paths beginning from each transition in transitionTreeMap, inserting the
-        //corresponding Strings in to strHashSet that have the relationship with conditionString denoted by searchCondition
-        for(Entry<Character, MDAGNode> transitionKeyValuePair : transitionTreeMap.entrySet())
+        private final SearchCondition searchCondition;
+        private final String conditionString;
+        private final MDAGVisitor visitor;
+        private char[] path;
+        private int offset;
+        private int limit;
+        private boolean stopped;
+
+        private Traversal(SearchCondition searchCondition, String conditionString, String prefixString, int offset, int limit, MDAGVisitor visitor)
         {
-            String newPrefixString = prefixString + transitionKeyValuePair.getKey();
-            MDAGNode currentNode = transitionKeyValuePair.getValue();
+            this.searchCondition = searchCondition;
+            this.conditionString = conditionString;
+            this.visitor = visitor;
+            this.offset = offset;
+            this.limit = limit;
+            path = new char[Math.max(32, prefixString.length() * 2)];
+            prefixString.getChars(0, prefixString.length(), path, 0);
+            stopped = limit <= 0;
+        }
 
-            if(currentNode.isAcceptNode() && searchCondition.satisfiesCondition(newPrefixString, searchConditionString))
-                strHashSet.add(newPrefixString);
+        /**
+         * Passes the path of the given length to the visitor if it is an accepted String satisfying the search condition
+         */
+        private void visit(int length, boolean isAcceptNode, boolean satisfied)
+        {
+            if(isAcceptNode && satisfied)
+            {
+                if(offset > 0)
+                    offset--;
+                else if(!visitor.visit(path, length) || --limit == 0)
+                    stopped = true;
+            }
+        }
 
-            //Recursively call this to traverse all the valid transition paths from currentNode
-            getStrings(strHashSet, searchCondition, searchConditionString, newPrefixString, currentNode.getOutgoingTransitions());
+        private void walk(MDAGNode node, int length, boolean satisfied)
+        {
+            for(int i = 0; i < node.getOutgoingTransitionCount() && !stopped; i++)
+            {
+                MDAGNode currentNode = node.getOutgoingTransitionTarget(i);
+                boolean currentSatisfied = push(length, node.getOutgoingTransitionLabel(i), satisfied);
+                visit(length + 1, currentNode.isAcceptNode(), currentSatisfied);
+                walk(currentNode, length + 1, currentSatisfied);
+            }
+        }
+
+        private void walk(SimpleMDAGNode node, int length, boolean satisfied)
+        {
+            int transitionSetBegin = node.getTransitionSetBeginIndex();
+            int onePastTransitionSetEnd = transitionSetBegin + node.getOutgoingTransitionSetSize();
+
+            for(int i = transitionSetBegin; i < onePastTransitionSetEnd && !stopped; i++)
+            {
+                SimpleMDAGNode currentNode = mdagDataArray[i];
+                boolean currentSatisfied = push(length, currentNode.getLetter(), satisfied);
+                visit(length + 1, currentNode.isAcceptNode(), currentSatisfied);
+                walk(currentNode, length + 1, currentSatisfied);
+            }
+        }
+
+        /**
+         * Puts a letter at the end of the path and determines whether the longer path satisfies the search condition.
+         * A path containing the condition String still does once extended, so only its end needs checking.
+         */
+        private boolean push(int length, char letter, boolean satisfied)
+        {
+            if(length == path.length)
+            {
+                char[] longerPath = new char[path.length * 2];
+                System.arraycopy(path, 0, longerPath, 0, length);
+                path = longerPath;
+            }
+            path[length] = letter;
+
+            switch(searchCondition)
+            {
+                case SUBSTRING_SEARCH_CONDITION:
+                    return satisfied || endsWith(length + 1);
+                case SUFFIX_SEARCH_CONDITION:
+                    return endsWith(length + 1);
+                default:
+                    return true;
+            }
+        }
+
+        private boolean endsWith(int length)
+        {
+            int start = length - conditionString.length();
+
+            if(start < 0)
+                return false;
+
+            for(int i = 0; i < conditionString.length(); i++)
+            {
+                if(path[start + i] != conditionString.charAt(i))
+                    return false;
+            }
+
+            return true;
         }
-        /////
     }
 
 
 
     /**
-     * Retrieves Strings corresponding to all valid transition paths from a given node that satisfy a given condition.
+     * Passes the Strings in the MDAG satisfying a search condition to a visitor, in lexicographic order.
 
-     * @param strHashSet                    a HashSet of Strings to contain all those in the MDAG satisfying
-     *                                      {@code searchCondition} with {@code conditionString}
-     * @param searchCondition               the SearchCondition enum field describing the type of relationship that Strings contained in the MDAG 
-     *                                      must have with {@code conditionString} in order to be included in the result set
-     * @param searchConditionString         the String that all Strings in the MDAG must be related with in the fashion denoted 
-     *                                      by {@code searchCondition} in order to be included in the result set
-     * @param prefixString                  the String corresponding to the currently traversed transition path
-     * @param transitionSetBegin            an int denoting the starting index of a SimpleMDAGNode's transition set in mdagDataArray
-     * @param onePastTransitionSetEnd       an int denoting one past the last index of a simpleMDAGNode's transition set in mdagDataArray
+     * @param searchCondition       the SearchCondition the Strings must satisfy with {@code conditionString}
+     * @param conditionString       the String the Strings must be related to, or the prefix for a prefix search
+     * @param offset                the number of satisfying Strings to skip
+     * @param limit                 the most Strings to pass to {@code visitor}
+     * @param visitor               the MDAGVisitor to be passed each String
      */
-    private void getStrings(HashSet<String> strHashSet, SearchCondition searchCondition, String searchConditionString, String prefixString, SimpleMDAGNode node)
+    private void visitStrings(SearchCondition searchCondition, String conditionString, int offset, int limit, MDAGVisitor visitor)
     {
-        int transitionSetBegin = node.getTransitionSetBeginIndex();
-        int onePastTransitionSetEnd = transitionSetBegin +  node.getOutgoingTransitionSetSize();
+        String prefixString = (searchCondition == SearchCondition.PREFIX_SEARCH_CONDITION ? conditionString : "");
+        Traversal traversal = new Traversal(searchCondition, conditionString, prefixString, offset, limit, visitor);
+        boolean satisfied = (searchCondition == SearchCondition.PREFIX_SEARCH_CONDITION || searchCondition == SearchCondition.NO_SEARCH_CONDITION);
 
-        //Traverse all the valid transition paths beginning from each transition in transitionTreeMap, inserting the
-        //corresponding Strings in to strHashSet that have the relationship with conditionString denoted by searchCondition
-        for(int i = transitionSetBegin; i < onePastTransitionSetEnd; i++)
+        if(sourceNode != null)      //if the MDAG hasn't been simplified
         {
-            SimpleMDAGNode currentNode = mdagDataArray[i];
-            String newPrefixString = prefixString + currentNode.getLetter();
+            MDAGNode originNode = sourceNode.transition(prefixString);  //attempt to transition down the path denoted by prefixString
 
-            if(currentNode.isAcceptNode() && searchCondition.satisfiesCondition(newPrefixString, searchConditionString))
-                strHashSet.add(newPrefixString);
+            if(originNode != null)
+            {
+                traversal.visit(prefixString.length(), originNode.isAcceptNode(), satisfied);
+                traversal.walk(originNode, prefixString.length(), satisfied);
+            }
+        }
+        else
+        {
+            SimpleMDAGNode originNode = (prefixString.isEmpty() ? simplifiedSourceNode
+                    : SimpleMDAGNode.traverseMDAG(mdagDataArray, simplifiedSourceNode, prefixString));
 
-            //Recursively call this to traverse all the valid transition paths from currentNode
-            getStrings(strHashSet, searchCondition, searchConditionString, newPrefixString, currentNode);
+            if(originNode != null)
+            {
+                traversal.visit(prefixString.length(), originNode.isAcceptNode(), satisfied);
+                traversal.walk(originNode, prefixString.length(), satisfied);
+            }
         }
-        /////
+    }
+
+
+
+    /**
+     * Passes all the Strings in the MDAG to a visitor, in lexicographic order.
+
+     * @param offset        the number of Strings to skip
+     * @param limit         the most Strings to pass to {@code visitor}
+     * @param visitor       the MDAGVisitor to be passed each String
+     */
+    public void visitAllStrings(int offset, int limit, MDAGVisitor visitor)
+    {
+        visitStrings(SearchCondition.NO_SEARCH_CONDITION, "", offset, limit, visitor);
+    }
+
+
+
+    /**
+     * Passes the Strings in the MDAG that begin with a given String to a visitor, in lexicographic order.
+
+     * @param prefixStr     a String that is the prefix for all the desired Strings
+     * @param offset        the number of matching Strings to skip
+     * @param limit         the most Strings to pass to {@code visitor}
+     * @param visitor       the MDAGVisitor to be passed each String
+     */
+    public void visitStringsStartingWith(String prefixStr, int offset, int limit, MDAGVisitor visitor)
+    {
+        visitStrings(SearchCondition.PREFIX_SEARCH_CONDITION, prefixStr, offset, limit, visitor);
+    }
+
+
+
+    /**
+     * Passes the Strings in the MDAG that contain a given String to a visitor, in lexicographic order.
+
+     * @param str           a String that is contained in all the desired Strings
+     * @param offset        the number of matching Strings to skip
+     * @param limit         the most Strings to pass to {@code visitor}
+     * @param visitor       the MDAGVisitor to be passed each String
+     */
+    public void visitStringsWithSubstring(String str, int offset, int limit, MDAGVisitor visitor)
+    {
+        visitStrings(SearchCondition.SUBSTRING_SEARCH_CONDITION, str, offset, limit, visitor);
+    }
+
+
+
+    /**
+     * Passes the Strings in the MDAG that end with a given String to a visitor, in lexicographic order.
+
+     * @param suffixStr     a String that is the suffix for all the desired Strings
+     * @param offset        the number of matching Strings to skip
+     * @param limit         the most Strings to pass to {@code visitor}
+     * @param visitor       the MDAGVisitor to be passed each String
+     */
+    public void visitStringsEndingWith(String suffixStr, int offset, int limit, MDAGVisitor visitor)
+    {
+        visitStrings(SearchCondition.SUFFIX_SEARCH_CONDITION, suffixStr, offset, limit, visitor);
+    }
+
+
+
+    /**
+     * Creates an MDAGVisitor that adds every String it is passed to a HashSet.
+     */
+    private static MDAGVisitor collectingVisitor(final HashSet<String> strHashSet)
+    {
+        return new MDAGVisitor()
+        {
+            @Override
+            public boolean visit(char[] path, int length)
+            {
+                strHashSet.add(new String(path, 0, length));
+                return true;
+            }
+        };
     }
 
 
@@ -790,12 +912,7 @@ public class MDAG
     public HashSet<String> getAllStrings()
     {
         HashSet<String> strHashSet = new HashSet<String>();
-
-        if(sourceNode != null)
-            getStrings(strHashSet, SearchCondition.NO_SEARCH_CONDITION, null, "", sourceNode.getOutgoingTransitions());
-        else
-            getStrings(strHashSet, SearchCondition.NO_SEARCH_CONDITION, null, "", simplifiedSourceNode);
-
+        visitAllStrings(0, Integer.MAX_VALUE, collectingVisitor(strHashSet));
         return strHashSet;
     }
 
@@ -810,28 +927,7 @@ public class MDAG
     public HashSet<String> getStringsStartingWith(String prefixStr)
     {
         HashSet<String> strHashSet = new HashSet<String>();
-
-        if(sourceNode != null)      //if the MDAG hasn't been simplified
-        {
-            MDAGNode originNode = sourceNode.transition(prefixStr);  //attempt to transition down the path denoted by prefixStr
-
-            if(originNode != null) //if there a transition path corresponding to prefixString (one or more stored Strings begin with prefixString)
-            {
-                if(originNode.isAcceptNode()) strHashSet.add(prefixStr);
-                getStrings(strHashSet, SearchCondition.PREFIX_SEARCH_CONDITION, prefixStr, prefixStr, originNode.getOutgoingTransitions());   //retrieve all Strings that extend the transition path denoted by prefixStr
-            }
-        }
-        else
-        {
-            SimpleMDAGNode originNode = SimpleMDAGNode.traverseMDAG(mdagDataArray, simplifiedSourceNode, prefixStr);      //attempt to transition down the path denoted by prefixStr
-
-            if(originNode != null)      //if there a transition path corresponding to prefixString (one or more stored Strings begin with prefixStr)
-            {
-                if(originNode.isAcceptNode()) strHashSet.add(prefixStr);
-                getStrings(strHashSet, SearchCondition.PREFIX_SEARCH_CONDITION, prefixStr, prefixStr, originNode);        //retrieve all Strings that extend the transition path denoted by prefixString
-            }
-        }
-
+        visitStringsStartingWith(prefixStr, 0, Integer.MAX_VALUE, collectingVisitor(strHashSet));
         return strHashSet;
     }
 
@@ -846,12 +942,7 @@ public class MDAG
     public HashSet<String> getStringsWithSubstring(String str)
     {
         HashSet<String> strHashSet = new HashSet<String>();
-
-        if(sourceNode != null)      //if the MDAG hasn't been simplified
-            getStrings(strHashSet, SearchCondition.SUBSTRING_SEARCH_CONDITION, str, "", sourceNode.getOutgoingTransitions());
-        else
-            getStrings(strHashSet, SearchCondition.SUBSTRING_SEARCH_CONDITION, str, "", simplifiedSourceNode);
-
+        visitStringsWithSubstring(str, 0, Integer.MAX_VALUE, collectingVisitor(strHashSet));
         return strHashSet;
     }
 
@@ -866,12 +957,7 @@ public class MDAG
     public HashSet<String> getStringsEndingWith(String suffixStr)
     {
         HashSet<String> strHashSet = new HashSet<String>();
-
-        if(sourceNode != null)      //if the MDAG hasn't been simplified
-            getStrings(strHashSet, SearchCondition.SUFFIX_SEARCH_CONDITION, suffixStr, "", sourceNode.getOutgoingTransitions());
-        else
-            getStrings(strHashSet, SearchCondition.SUFFIX_SEARCH_CONDITION, suffixStr, "", simplifiedSourceNode);
-
+        visitStringsEndingWith(suffixStr, 0, Integer.MAX_VALUE, collectingVisitor(strHashSet));
         return strHashSet;
     }
 
@@ -943,10 +1029,8 @@ public class MDAG
     {
         if(originNode != sourceNode) nodeIDHashSet.add(originNode.id);
 
-        TreeMap<Character, MDAGNode> transitionTreeMap = originNode.getOutgoingTransitions();
-
-        for(Entry<Character, MDAGNode> transitionKeyValuePair : transitionTreeMap.entrySet())
-            countNodes(transitionKeyValuePair.getValue(), nodeIDHashSet);
+        for(int i = 0; i < originNode.getOutgoingTransitionCount(); i++)
+            countNodes(originNode.getOutgoingTransitionTarget(i), nodeIDHashSet);
 
         return nodeIDHashSet.size();
     }
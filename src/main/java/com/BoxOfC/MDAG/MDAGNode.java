@@ -22,9 +22,9 @@
 
 package com.BoxOfC.MDAG;
 
+import java.util.AbstractMap;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.Map.Entry;
 import java.util.Stack;
 
 
@@ -41,8 +41,17 @@ public class MDAGNode
     //The boolean denoting the accept state status of this node
     private boolean isAcceptNode;
 
-    //The TreeMap to containing entries that represent a transition (label and target node)
-    private final TreeMap<Character, MDAGNode> outgoingTransitionTreeMap;
+    //Shared by all nodes without outgoing transitions
+    private static final char[] NO_LABELS = new char[0];
+    private static final MDAGNode[] NO_TARGETS = new MDAGNode[0];
+
+    //The labels of this node's outgoing transitions in ascending order, and the nodes they target at the same
+    //indices (binary searched instead of a TreeMap<Character, MDAGNode>, which boxes labels and allocates an entry per transition)
+    private char[] transitionLabels = NO_LABELS;
+    private MDAGNode[] transitionTargets = NO_TARGETS;
+
+    //The int denoting the number of outgoing transitions, which occupy the start of transitionLabels and transitionTargets
+    private int outgoingTransitionCount;
 
     //The int representing this node's incoming transition node count
     private int incomingTransitionCount = 0;
@@ -51,7 +60,8 @@ public class MDAGNode
     private int transitionSetBeginIndex = -1;
 
     //The int which will store this node's hash code after its been calculated (necessary due to how expensive the hashing calculation is)
-    private Integer storedHashCode = null;
+    private int storedHashCode;
+    private boolean hasStoredHashCode;
 
 
 
@@ -63,7 +73,6 @@ public class MDAGNode
     public MDAGNode(boolean isAcceptNode)
     {
         this.isAcceptNode = isAcceptNode;
-        outgoingTransitionTreeMap = new TreeMap<Character, MDAGNode>();
     }
 
 
@@ -77,20 +86,13 @@ public class MDAGNode
     private MDAGNode(MDAGNode node)
     {
         isAcceptNode = node.isAcceptNode;
-        outgoingTransitionTreeMap = new TreeMap<Character, MDAGNode>(node.outgoingTransitionTreeMap);
-
-        //Loop through the nodes in this node's outgoing transition set, incrementing the number of
-        //incoming transitions of each by 1 (to account for this newly created node's outgoing transitions)
-        for(Entry<Character, MDAGNode> transitionKeyValuePair : outgoingTransitionTreeMap.entrySet())
-            transitionKeyValuePair.getValue().incomingTransitionCount++;
-        /////
+        copyTransitions(node);
     }
 
     public MDAGNode(boolean isAcceptNode, int id)
     {
         this.id = id;
         this.isAcceptNode = isAcceptNode;
-        outgoingTransitionTreeMap = new TreeMap<Character, MDAGNode>();
     }
 
 
@@ -98,10 +100,31 @@ public class MDAGNode
     {
         this.id = id;
         isAcceptNode = node.isAcceptNode;
-        outgoingTransitionTreeMap = new TreeMap<Character, MDAGNode>(node.outgoingTransitionTreeMap);
+        copyTransitions(node);
+    }
+
+
+
+    /**
+     * Gives this node the same outgoing transitions as another.
+
+     * @param node      the MDAGNode whose outgoing transitions this node is to take on
+     */
+    private void copyTransitions(MDAGNode node)
+    {
+        outgoingTransitionCount = node.outgoingTransitionCount;
+
+        if(outgoingTransitionCount > 0)
+        {
+            transitionLabels = Arrays.copyOf(node.transitionLabels, outgoingTransitionCount);
+            transitionTargets = Arrays.copyOf(node.transitionTargets, outgoingTransitionCount);
+        }
 
-        for(Map.Entry<Character, MDAGNode> transitionKeyValuePair : outgoingTransitionTreeMap.entrySet())
-            transitionKeyValuePair.getValue().incomingTransitionCount++;
+        //Loop through the nodes in this node's outgoing transition set, incrementing the number of
+        //incoming transitions of each by 1 (to account for this newly created node's outgoing transitions)
+        for(int i = 0; i < outgoingTransitionCount; i++)
+            transitionTargets[i].incomingTransitionCount++;
+        /////
     }
 
 
@@ -151,7 +174,10 @@ public class MDAGNode
 
     public Map.Entry<Character, MDAGNode> getLastTransition()
     {
-        return outgoingTransitionTreeMap.lastEntry();
+        if(outgoingTransitionCount == 0)
+            return null;
+
+        return new AbstractMap.SimpleImmutableEntry<Character, MDAGNode>(transitionLabels[outgoingTransitionCount - 1], transitionTargets[outgoingTransitionCount - 1]);
     }
 
 
@@ -163,7 +189,7 @@ public class MDAGNode
      */
     public int getOutgoingTransitionCount()
     {
-        return outgoingTransitionTreeMap.size();
+        return outgoingTransitionCount;
     }
 
 
@@ -239,7 +265,7 @@ public class MDAGNode
      */
     public boolean hasOutgoingTransition(char letter)
     {
-        return outgoingTransitionTreeMap.containsKey(letter);
+        return (indexOfTransition(letter) >= 0);
     }
 
 
@@ -251,7 +277,7 @@ public class MDAGNode
      */
     public boolean hasOutgoingTransitions()
     {
-        return !outgoingTransitionTreeMap.isEmpty();
+        return (outgoingTransitionCount > 0);
     }
 
 
@@ -265,7 +291,8 @@ public class MDAGNode
      */
     public MDAGNode transition(char letter)
     {
-        return outgoingTransitionTreeMap.get(letter);
+        int index = indexOfTransition(letter);
+        return (index >= 0 ? transitionTargets[index] : null);
     }
 
 
@@ -325,14 +352,27 @@ public class MDAGNode
 
 
     /**
-     * Retrieves this node's outgoing transitions.
+     * Retrieves the label of one of this node's outgoing transitions.
 
-     * @return      a TreeMap containing entries collectively representing
-     *              all of this node's outgoing transitions
+     * @param index     an int between 0 and {@link #getOutgoingTransitionCount()} - 1, transitions are in label order
+     * @return          the char labeling the transition at {@code index}
      */
-    public TreeMap<Character, MDAGNode> getOutgoingTransitions()
+    public char getOutgoingTransitionLabel(int index)
     {
-        return outgoingTransitionTreeMap;
+        return transitionLabels[index];
+    }
+
+
+
+    /**
+     * Retrieves the target of one of this node's outgoing transitions.
+
+     * @param index     an int between 0 and {@link #getOutgoingTransitionCount()} - 1, transitions are in label order
+     * @return          the MDAGNode targeted by the transition at {@code index}
+     */
+    public MDAGNode getOutgoingTransitionTarget(int index)
+    {
+        return transitionTargets[index];
     }
 
 
@@ -343,8 +383,8 @@ public class MDAGNode
      */
     public void decrementTargetIncomingTransitionCounts()
     {
-        for(Entry<Character, MDAGNode> transitionKeyValuePair: outgoingTransitionTreeMap.entrySet())
-            transitionKeyValuePair.getValue().incomingTransitionCount--;
+        for(int i = 0; i < outgoingTransitionCount; i++)
+            transitionTargets[i].incomingTransitionCount--;
     }
 
 
@@ -361,7 +401,7 @@ public class MDAGNode
         oldTargetNode.incomingTransitionCount--;
         newTargetNode.incomingTransitionCount++;
 
-        outgoingTransitionTreeMap.put(letter, newTargetNode);
+        putTransition(letter, newTargetNode);
     }
 
 
@@ -379,7 +419,7 @@ public class MDAGNode
         MDAGNode newTargetNode = new MDAGNode(targetAcceptStateStatus);
         newTargetNode.incomingTransitionCount++;
 
-        outgoingTransitionTreeMap.put(letter, newTargetNode);
+        putTransition(letter, newTargetNode);
         return newTargetNode;
     }
 
@@ -390,7 +430,7 @@ public class MDAGNode
         newTargetNode.incomingTransitionCount++;
         newTargetNode.id = id;
 
-        outgoingTransitionTreeMap.put(letter, newTargetNode);
+        putTransition(letter, newTargetNode);
         return newTargetNode;
     }
 
@@ -404,7 +444,62 @@ public class MDAGNode
      */
     public void removeOutgoingTransition(char letter)
     {
-        outgoingTransitionTreeMap.remove(letter);
+        int index = indexOfTransition(letter);
+
+        if(index >= 0)
+        {
+            outgoingTransitionCount--;
+            System.arraycopy(transitionLabels, index + 1, transitionLabels, index, outgoingTransitionCount - index);
+            System.arraycopy(transitionTargets, index + 1, transitionTargets, index, outgoingTransitionCount - index);
+            transitionTargets[outgoingTransitionCount] = null;
+        }
+    }
+
+
+
+    /**
+     * Finds the index of the outgoing transition labeled with a given char.
+
+     * @param letter        the char labeling the transition of interest
+     * @return              the index of the transition if present, otherwise (-(insertion point) - 1)
+     */
+    private int indexOfTransition(char letter)
+    {
+        return Arrays.binarySearch(transitionLabels, 0, outgoingTransitionCount, letter);
+    }
+
+
+
+    /**
+     * Creates or retargets the outgoing transition labeled with a given char, keeping the transitions in label order.
+
+     * @param letter            the char labeling the transition
+     * @param targetNode        the MDAGNode the transition is to target
+     */
+    private void putTransition(char letter, MDAGNode targetNode)
+    {
+        int index = indexOfTransition(letter);
+
+        if(index >= 0)
+        {
+            transitionTargets[index] = targetNode;
+            return;
+        }
+
+        index = -index - 1;
+
+        if(outgoingTransitionCount == transitionLabels.length)
+        {
+            int capacity = outgoingTransitionCount + (outgoingTransitionCount >> 1) + 1;
+            transitionLabels = Arrays.copyOf(transitionLabels, capacity);
+            transitionTargets = Arrays.copyOf(transitionTargets, capacity);
+        }
+
+        System.arraycopy(transitionLabels, index, transitionLabels, index + 1, outgoingTransitionCount - index);
+        System.arraycopy(transitionTargets, index, transitionTargets, index + 1, outgoingTransitionCount - index);
+        transitionLabels[index] = letter;
+        transitionTargets[index] = targetNode;
+        outgoingTransitionCount++;
     }
 
 
@@ -412,28 +507,20 @@ public class MDAGNode
     /**
      * Determines whether the sets of transition paths from two MDAGNodes are equivalent. This is an expensive operation.
 
-     * @param outgoingTransitionTreeMap1        a TreeMap containing entries collectively representing
-     *                                          all of a node's outgoing transitions
-     * @param outgoingTransitionTreeMap2        a TreeMap containing entries collectively representing
-     *                                          all of a node's outgoing transitions
+     * @param node1                            an MDAGNode
+     * @param node2                            an MDAGNode
      * @return                                  true if the set of transition paths from {@code node1}
      *                                          and {@code node2} are equivalent
      */
     public static boolean haveSameTransitions(MDAGNode node1, MDAGNode node2)
     {
-        TreeMap<Character, MDAGNode> outgoingTransitionTreeMap1 = node1.outgoingTransitionTreeMap;
-        TreeMap<Character, MDAGNode> outgoingTransitionTreeMap2 = node2.outgoingTransitionTreeMap;
-
-        if(outgoingTransitionTreeMap1.size() == outgoingTransitionTreeMap2.size())
+        if(node1.outgoingTransitionCount == node2.outgoingTransitionCount)
         {
-            //For each transition in outgoingTransitionTreeMap1, get the identically lableed transition
-            //in outgoingTransitionTreeMap2 (if present), and test the equality of the transitions' target nodes
-            for(Entry<Character, MDAGNode> transitionKeyValuePair : outgoingTransitionTreeMap1.entrySet())
+            //Both transition sets are in label order, so identically labeled transitions share an index;
+            //test the equality of the labels and of the transitions' target nodes
+            for(int i = 0; i < node1.outgoingTransitionCount; i++)
             {
-                Character currentCharKey = transitionKeyValuePair.getKey();
-                MDAGNode currentTargetNode = transitionKeyValuePair.getValue();
-
-                if(!outgoingTransitionTreeMap2.containsKey(currentCharKey) || !outgoingTransitionTreeMap2.get(currentCharKey).equals(currentTargetNode))
+                if(node1.transitionLabels[i] != node2.transitionLabels[i] || !node1.transitionTargets[i].equals(node2.transitionTargets[i]))
                     return false;
             }
             /////
@@ -451,7 +538,7 @@ public class MDAGNode
      */
     public void clearStoredHashCode()
     {
-        storedHashCode = null;
+        hasStoredHashCode = false;
     }
 
 
@@ -490,13 +577,19 @@ public class MDAGNode
     @Override
     public int hashCode() {
 
-        if(storedHashCode == null)
+        if(!hasStoredHashCode)
         {
+            //Same value as hashing a TreeMap of the transitions: the sum of each label's hash XOR its target's hash,
+            //which recursively hashes the nodes in all the transition paths stemming from this node
+            int transitionsHash = 0;
+            for(int i = 0; i < outgoingTransitionCount; i++)
+                transitionsHash += transitionLabels[i] ^ transitionTargets[i].hashCode();
+
             int hash = 7;
             hash = 53 * hash + (this.isAcceptNode ? 1 : 0);
-            hash = 53 * hash + (this.outgoingTransitionTreeMap != null ? this.outgoingTransitionTreeMap.hashCode() : 0);    //recursively hashes the nodes in all the 
-            //transition paths stemming from this node
+            hash = 53 * hash + transitionsHash;
             storedHashCode = hash;
+            hasStoredHashCode = true;
             return hash;
         }
         else
@@ -0,0 +1,21 @@
+package com.BoxOfC.MDAG;
+
+
+
+/**
+ * Receives the Strings found by an MDAG traversal. The path array is reused by the traversal, so a
+ * visitor must copy out any part of it that it wants to keep.
+
+ * @see MDAG#visitStringsStartingWith(String, int, int, MDAGVisitor)
+ */
+public interface MDAGVisitor
+{
+    /**
+     * Called for each String found, in lexicographic order.
+
+     * @param path      a char array whose first {@code length} chars are the String
+     * @param length    an int of the length of the String
+     * @return          true to continue the traversal, false to stop it
+     */
+    boolean visit(char[] path, int length);
+}
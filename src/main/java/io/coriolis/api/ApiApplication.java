@@ -12,7 +12,9 @@ import io.coriolis.api.health.EDDNHealthCheck;
 import io.coriolis.api.health.TaskHealthCheck;
 import io.coriolis.api.resources.CompanionEndpoint;
 import io.coriolis.api.resources.FindBuildEndpoint;
+import io.coriolis.api.resources.StationEndpoint;
 import io.coriolis.api.resources.SystemEndpoint;
+import io.coriolis.api.tasks.BenchmarkFindNearTask;
 import io.coriolis.api.tasks.RefreshEDDBStationsTask;
 import io.coriolis.api.tasks.RefreshEDDBSystemsTask;
 import io.coriolis.api.tasks.RestartEDDNListenerTask;
@@ -66,7 +68,8 @@ public class ApiApplication extends Application<ApiConfiguration> {
         final HttpClient companionHttpClient = new HttpClientBuilder(env).using(conf.getCompanionClientConfiguration()).build("Companion");
         final MetricRegistry metricRegistry = env.metrics();
         //AmazonDynamoDBClientManager managedDynamoDBClient = new AmazonDynamoDBClientManager(conf);
-        Universe universe = new Universe(metricRegistry);
+        Modules.INSTANCE.initialize();  // Module indexes are needed to build the Universe module index
+        Universe universe = new Universe(metricRegistry, conf.getSpatialIndexLeafSize());
         EDDNManager eddnManager = new EDDNManager(conf.getEddnHost(), conf.getEddnPort(), universe, metricRegistry);
         RefreshEDDBSystemsTask refresSystemsTask = new RefreshEDDBSystemsTask(conf.getEddbSystemJSONUrl(), universe, httpClient);
         RefreshEDDBStationsTask refreshStationsTask = new RefreshEDDBStationsTask(conf.getEddbStationJSONUrl(), universe, httpClient);
@@ -78,8 +81,7 @@ public class ApiApplication extends Application<ApiConfiguration> {
         }
         long minsUntilEDDBUpdate = Minutes.minutesBetween(new DateTime(), eddbUpdateTime.isAfterNow() ? eddbUpdateTime : eddbUpdateTime.plusDays(1)).getMinutes();
 
-        // Initialize Systems, Stations, Modules, etc
-        Modules.INSTANCE.initialize();
+        // Initialize Systems, Stations, etc
         //universe.loadFromDB();
         //refresSystemsTask.run();
         //refreshStationsTask.run();
@@ -102,12 +104,14 @@ public class ApiApplication extends Application<ApiConfiguration> {
         env.admin().addTask(new RestartEDDNListenerTask(eddnManager));
         env.admin().addTask(refresSystemsTask);
         env.admin().addTask(refreshStationsTask);
+        env.admin().addTask(new BenchmarkFindNearTask(universe));
 
         // Consumer/User Endpoints
         enableCORS(env.servlets(), "/*");
         env.jersey().register(new CompanionEndpoint(new CompanionClient(companionHttpClient)));
-        env.jersey().register(new SystemEndpoint(universe));
+        env.jersey().register(new SystemEndpoint(universe, conf.getMaxNearRadiusLY(), conf.getMaxNearResults(), conf.getMaxCompletions()));
         env.jersey().register(new FindBuildEndpoint(universe));
+        env.jersey().register(new StationEndpoint(universe, conf.getMaxStationResults()));
 
         // Scheduled Tasks
         logger.info("Next EDDB scheduled update @ " + eddbUpdateTime + " in " + minsUntilEDDBUpdate + " minutes");
@@ -1,12 +1,14 @@
 package io.coriolis.api;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.coriolis.api.core.spatial.SystemKdTree;
 import io.dropwizard.Configuration;
 import io.dropwizard.client.HttpClientConfiguration;
 import io.dropwizard.server.ServerFactory;
 import org.hibernate.validator.constraints.NotEmpty;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 public class ApiConfiguration extends Configuration {
@@ -34,6 +36,26 @@ public class ApiConfiguration extends Configuration {
     @JsonProperty
     private String adminUser;
 
+    @Min(1)
+    @JsonProperty
+    private int maxNearRadiusLY = 100;
+
+    @Min(1)
+    @JsonProperty
+    private int maxNearResults = 100;
+
+    @Min(1)
+    @JsonProperty
+    private int maxStationResults = 50;
+
+    @Min(1)
+    @JsonProperty
+    private int maxCompletions = 50;
+
+    @Min(2)
+    @JsonProperty
+    private int spatialIndexLeafSize = SystemKdTree.DEFAULT_LEAF_SIZE;
+
     @NotEmpty
     @JsonProperty
     private String adminPassword;
@@ -84,4 +106,24 @@ public class ApiConfiguration extends Configuration {
         return adminUser;
     }
 
+    public int getMaxNearRadiusLY() {
+        return maxNearRadiusLY;
+    }
+
+    public int getMaxNearResults() {
+        return maxNearResults;
+    }
+
+    public int getMaxStationResults() {
+        return maxStationResults;
+    }
+
+    public int getMaxCompletions() {
+        return maxCompletions;
+    }
+
+    public int getSpatialIndexLeafSize() {
+        return spatialIndexLeafSize;
+    }
+
 }
@@ -0,0 +1,43 @@
+package io.coriolis.api.core;
+
+import io.coriolis.api.core.modules.ModuleMatcher;
+
+/**
+ * The ship and modules wanted by one build search
+ */
+public class BuildQuery {
+
+    private final Ship ship;
+    private final ModuleMatcher standard;
+    private final ModuleMatcher internal;
+    private final ModuleMatcher hardpoint;
+    private final ModuleMatcher utility;
+
+    public BuildQuery(Ship ship, ModuleMatcher standard, ModuleMatcher internal, ModuleMatcher hardpoint, ModuleMatcher utility) {
+        this.ship = ship;
+        this.standard = standard;
+        this.internal = internal;
+        this.hardpoint = hardpoint;
+        this.utility = utility;
+    }
+
+    public Ship getShip() {
+        return ship;
+    }
+
+    public ModuleMatcher getStandard() {
+        return standard;
+    }
+
+    public ModuleMatcher getInternal() {
+        return internal;
+    }
+
+    public ModuleMatcher getHardpoint() {
+        return hardpoint;
+    }
+
+    public ModuleMatcher getUtility() {
+        return utility;
+    }
+}
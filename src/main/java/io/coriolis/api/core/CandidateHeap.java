@@ -0,0 +1,129 @@
+package io.coriolis.api.core;
+
+import io.coriolis.api.core.spatial.SystemKdTree;
+import io.coriolis.api.entities.BuildStationCandidate;
+
+/**
+ * Fixed capacity min-heap of build candidates kept in primitive columns, worst candidate at the root. When both
+ * sell the ship the one with more modules is better, then the nearer one (by unrounded distance). Otherwise the
+ * one with the higher score is better. Candidate objects are only created for the final results.
+ */
+public class CandidateHeap {
+
+    private final int[] position;   // Position of the station in the spatial index
+    private final int[] slot;   // Slot of the station's system in the spatial index
+    private final boolean[] hasShip;
+    private final int[] modulesFound;
+    private final double[] score;
+    private final double[] distanceSquared;
+    private int size;
+
+    public CandidateHeap(int capacity) {
+        position = new int[capacity];
+        slot = new int[capacity];
+        hasShip = new boolean[capacity];
+        modulesFound = new int[capacity];
+        score = new double[capacity];
+        distanceSquared = new double[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == position.length;
+    }
+
+    public double worstScore() {
+        return score[0];
+    }
+
+    public double worstDistanceSquared() {
+        return distanceSquared[0];
+    }
+
+    /**
+     * @return false if the heap is full and the candidate is no better than the worst in it
+     */
+    public boolean offer(int stationPosition, int systemSlot, boolean ship, int modules, double stationScore, double stationDistanceSquared) {
+        int i;
+
+        if (size < position.length) {
+            i = size++;
+            while (i > 0) {     // Sift up while better than the parent
+                int parent = (i - 1) >>> 1;
+                if (compare(ship, modules, stationScore, stationDistanceSquared, parent) >= 0) {
+                    break;
+                }
+                move(parent, i);
+                i = parent;
+            }
+        } else if (size > 0 && compare(ship, modules, stationScore, stationDistanceSquared, 0) > 0) {
+            i = 0;
+            while (true) {      // Replace the worst, sift down while worse than a child
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && compare(child + 1, child) < 0) {
+                    child++;
+                }
+                if (compare(ship, modules, stationScore, stationDistanceSquared, child) <= 0) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+        } else {
+            return false;
+        }
+
+        position[i] = stationPosition;
+        slot[i] = systemSlot;
+        hasShip[i] = ship;
+        modulesFound[i] = modules;
+        score[i] = stationScore;
+        distanceSquared[i] = stationDistanceSquared;
+        return true;
+    }
+
+    /**
+     * @return Candidates for the stations in the heap, in heap order
+     */
+    public BuildStationCandidate[] toCandidates(SystemKdTree index) {
+        BuildStationCandidate[] candidates = new BuildStationCandidate[size];
+
+        for (int i = 0; i < size; i++) {
+            candidates[i] = new BuildStationCandidate(index.getSystem(slot[i]).getSystemName(), index.getStation(position[i]),
+                    hasShip[i], score[i], modulesFound[i], Math.sqrt(distanceSquared[i]));
+        }
+        return candidates;
+    }
+
+    /**
+     * @return Negative if the candidate is worse than the one at position i, positive if better
+     */
+    private int compare(boolean ship, int modules, double stationScore, double stationDistanceSquared, int i) {
+        if (ship && hasShip[i]) {
+            if (modules == modulesFound[i]) {
+                return Double.compare(distanceSquared[i], stationDistanceSquared);    // Nearer is better
+            }
+            return modules < modulesFound[i] ? -1 : 1;
+        }
+        return Double.compare(stationScore, score[i]);
+    }
+
+    private int compare(int i, int j) {
+        return compare(hasShip[i], modulesFound[i], score[i], distanceSquared[i], j);
+    }
+
+    private void move(int from, int to) {
+        position[to] = position[from];
+        slot[to] = slot[from];
+        hasShip[to] = hasShip[from];
+        modulesFound[to] = modulesFound[from];
+        score[to] = score[from];
+        distanceSquared[to] = distanceSquared[from];
+    }
+}
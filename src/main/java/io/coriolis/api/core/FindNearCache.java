@@ -0,0 +1,146 @@
+package io.coriolis.api.core;
+
+import cern.colt.bitvector.BitVector;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import io.coriolis.api.core.modules.ModuleMatcher;
+import io.coriolis.api.entities.BuildStationCandidate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of findNear results. Each entry remembers the version of every k-d tree node the search
+ * visited or pruned, and is only served while none of those nodes have had a station change since.
+ */
+public class FindNearCache {
+
+    private final LinkedHashMap<Key, CachedResult> entries;
+    private final Meter hits;
+    private final Meter misses;
+
+    public FindNearCache(final int maxEntries, MetricRegistry metrics) {
+        entries = new LinkedHashMap<Key, CachedResult>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        hits = metrics.meter("findNearCacheHits");
+        misses = metrics.meter("findNearCacheMisses");
+        metrics.register("findNearCacheHitRate", new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    /**
+     * @return The cached results, or null if there are none or they may be out of date
+     */
+    public synchronized BuildStationCandidate[] get(Key key, NodeSummaries summaries) {
+        CachedResult entry = entries.get(key);
+
+        if (entry != null && entry.isValid(summaries)) {
+            hits.mark();
+            return entry.results;
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses.mark();
+        return null;
+    }
+
+    /**
+     * @param nodeVersions Pairs of node and the version it had when the search looked at it
+     */
+    public synchronized void put(Key key, NodeSummaries summaries, int[] nodeVersions, BuildStationCandidate[] results) {
+        entries.put(key, new CachedResult(summaries, nodeVersions, results));
+    }
+
+    public static class Key {
+
+        private final int systemId;
+        private final Ship ship;
+        private final BitVector standard;
+        private final BitVector internal;
+        private final BitVector hardpoint;
+        private final BitVector utility;
+        private final int hash;
+
+        public Key(int systemId, Ship ship, ModuleMatcher s, ModuleMatcher i, ModuleMatcher h, ModuleMatcher u) {
+            this.systemId = systemId;
+            this.ship = ship;
+            this.standard = s != null ? s.getSet() : null;
+            this.internal = i != null ? i.getSet() : null;
+            this.hardpoint = h != null ? h.getSet() : null;
+            this.utility = u != null ? u.getSet() : null;
+
+            int result = systemId;
+            result = 31 * result + (ship != null ? ship.hashCode() : 0);
+            result = 31 * result + hashOf(standard);
+            result = 31 * result + hashOf(internal);
+            result = 31 * result + hashOf(hardpoint);
+            result = 31 * result + hashOf(utility);
+            hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return systemId == key.systemId
+                    && ship == key.ship
+                    && same(standard, key.standard)
+                    && same(internal, key.internal)
+                    && same(hardpoint, key.hardpoint)
+                    && same(utility, key.utility);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private static int hashOf(BitVector set) {
+            return set != null ? set.hashCode() : 0;
+        }
+
+        private static boolean same(BitVector a, BitVector b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private static class CachedResult {
+
+        private final NodeSummaries summaries;
+        private final int[] nodeVersions;
+        private final BuildStationCandidate[] results;
+
+        private CachedResult(NodeSummaries summaries, int[] nodeVersions, BuildStationCandidate[] results) {
+            this.summaries = summaries;
+            this.nodeVersions = nodeVersions;
+            this.results = results;
+        }
+
+        private boolean isValid(NodeSummaries current) {
+            if (summaries != current) {     // Spatial index or summaries rebuilt since
+                return false;
+            }
+            for (int n = 0; n < nodeVersions.length; n += 2) {
+                if (current.getVersion(nodeVersions[n]) != nodeVersions[n + 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package io.coriolis.api.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Top N prefix completion over sorted names. The names sharing a prefix are one contiguous range of the
+ * array, and a max segment tree over the name weights finds the heaviest name in any range, so the best
+ * N are taken one at a time by splitting the range around each pick. The cost depends on N and the
+ * log of the number of names, not on how many names share the prefix.
+ *
+ * An exact match always comes first, then heavier names, then names in lexicographic order.
+ */
+public class NameCompletions {
+
+    private static final Comparator<int[]> HEAVIEST_FIRST = new Comparator<int[]>() {
+        @Override
+        public int compare(int[] a, int[] b) {     // {weight, index, from, to}
+            if (a[0] != b[0]) {
+                return b[0] - a[0];
+            }
+            return a[1] - b[1];
+        }
+    };
+
+    private final String[] names;
+    private final int[] weights;
+    private final int leaves;
+    private final int[] best;   // Segment tree of the index of the heaviest (then first) name under each node
+
+    /**
+     * @param names Lower cased names, sorted
+     * @param weights Ranking weight of each name, higher first
+     */
+    public NameCompletions(String[] names, int[] weights) {
+        this.names = names;
+        this.weights = weights;
+
+        int size = 1;
+        while (size < names.length) {
+            size <<= 1;
+        }
+        leaves = size;
+        best = new int[2 * size];
+        Arrays.fill(best, -1);
+
+        for (int i = 0; i < names.length; i++) {
+            best[size + i] = i;
+        }
+        for (int node = size - 1; node > 0; node--) {
+            best[node] = better(best[2 * node], best[2 * node + 1]);
+        }
+    }
+
+    /**
+     * @return The sorted names, shared with the caller
+     */
+    public String[] getNames() {
+        return names;
+    }
+
+    /**
+     * @param prefix Lower cased prefix
+     * @return Up to limit names starting with the prefix, best first
+     */
+    public List<String> complete(String prefix, int limit) {
+        List<String> found = new ArrayList<>(Math.min(limit, 16));
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+
+        if (from < to && names[from].equals(prefix) && limit > 0) {
+            found.add(names[from++]);
+        }
+
+        PriorityQueue<int[]> ranges = new PriorityQueue<>(16, HEAVIEST_FIRST);
+        offer(ranges, from, to);
+
+        while (found.size() < limit && !ranges.isEmpty()) {
+            int[] range = ranges.poll();
+            int pick = range[1];
+            found.add(names[pick]);
+            offer(ranges, range[2], pick);
+            offer(ranges, pick + 1, range[3]);
+        }
+        return found;
+    }
+
+    private void offer(PriorityQueue<int[]> ranges, int from, int to) {
+        if (from < to) {
+            int pick = heaviest(from, to);
+            ranges.add(new int[]{weights[pick], pick, from, to});
+        }
+    }
+
+    /**
+     * @return Index of the heaviest (then first) name in from to to - 1
+     */
+    private int heaviest(int from, int to) {
+        int pick = -1;
+        for (int l = from + leaves, r = to + leaves; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                pick = better(pick, best[l++]);
+            }
+            if ((r & 1) == 1) {
+                pick = better(pick, best[--r]);
+            }
+        }
+        return pick;
+    }
+
+    private int better(int a, int b) {
+        if (a == -1) {
+            return b;
+        }
+        if (b == -1) {
+            return a;
+        }
+        if (weights[a] != weights[b]) {
+            return weights[a] > weights[b] ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0, hi = names.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (names[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
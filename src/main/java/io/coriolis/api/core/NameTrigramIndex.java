@@ -0,0 +1,143 @@
+package io.coriolis.api.core;
+
+import cern.colt.function.LongObjectProcedure;
+import cern.colt.list.IntArrayList;
+import cern.colt.map.OpenLongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Inverted index from every three character sequence (trigram) to the names containing it. A substring
+ * search intersects the posting lists of the query's trigrams, shortest first, and only checks the names
+ * that survive, so its cost follows the rarest trigram rather than the size of the dictionary. Queries
+ * shorter than a trigram have nothing to narrow the search and are rejected rather than scanning every name.
+ *
+ * Names are numbered in the order given, posting lists are sorted int arrays and trigrams are packed
+ * three chars to a long, kept sorted for binary search.
+ */
+public class NameTrigramIndex {
+
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    private final String[] names;
+    private final long[] trigrams;
+    private final int[][] postings;
+
+    /**
+     * @param nameCollection Lower cased names
+     */
+    public NameTrigramIndex(Collection<String> nameCollection) {
+        names = nameCollection.toArray(new String[nameCollection.size()]);
+        final OpenLongObjectHashMap lists = new OpenLongObjectHashMap();
+
+        for (int id = 0; id < names.length; id++) {
+            String name = names[id];
+            for (int c = 0; c + 3 <= name.length(); c++) {
+                long trigram = trigram(name, c);
+                IntArrayList list = (IntArrayList) lists.get(trigram);
+                if (list == null) {
+                    list = new IntArrayList(4);
+                    lists.put(trigram, list);
+                }
+                if (list.isEmpty() || list.getQuick(list.size() - 1) != id) {   // Once per name, ids arrive in order
+                    list.add(id);
+                }
+            }
+        }
+
+        trigrams = new long[lists.size()];
+        lists.forEachPair(new LongObjectProcedure() {
+            private int t;
+
+            @Override
+            public boolean apply(long trigram, Object list) {
+                trigrams[t++] = trigram;
+                return true;
+            }
+        });
+        Arrays.sort(trigrams);
+
+        postings = new int[trigrams.length][];
+        for (int t = 0; t < trigrams.length; t++) {
+            IntArrayList list = (IntArrayList) lists.get(trigrams[t]);
+            postings[t] = Arrays.copyOf(list.elements(), list.size());
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param part Lower cased substring, at least MIN_QUERY_LENGTH characters
+     * @return Names containing the substring, in index order
+     */
+    public List<String> namesContaining(String part) {
+        List<String> found = new ArrayList<>();
+
+        if (part.length() < MIN_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Substring must be at least " + MIN_QUERY_LENGTH + " characters: " + part);
+        }
+
+        int[][] lists = new int[part.length() - 2][];
+        for (int c = 0; c < lists.length; c++) {
+            int t = Arrays.binarySearch(trigrams, trigram(part, c));
+            if (t < 0) {
+                return found;
+            }
+            lists[c] = postings[t];
+        }
+        Arrays.sort(lists, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                return a.length - b.length;
+            }
+        });
+
+        int[] candidates = lists[0];
+        int count = candidates.length;
+        for (int l = 1; l < lists.length && count > 0; l++) {
+            if (lists[l] != lists[l - 1]) {     // Repeated trigrams share a list
+                candidates = intersect(candidates, count, lists[l]);
+                count = candidates.length;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            String name = names[candidates[i]];
+            if (lists.length == 1 || name.contains(part)) {     // Trigrams don't say they are adjacent
+                found.add(name);
+            }
+        }
+        return found;
+    }
+
+    private static int[] intersect(int[] a, int aCount, int[] b) {
+        int[] result = new int[Math.min(aCount, b.length)];
+        int i = 0, j = 0, count = 0;
+
+        while (i < aCount && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @return The three chars from c packed into a long
+     */
+    static long trigram(String s, int c) {
+        return ((long) s.charAt(c) << 32) | ((long) s.charAt(c + 1) << 16) | s.charAt(c + 2);
+    }
+}
@@ -0,0 +1,170 @@
+package io.coriolis.api.core;
+
+import cern.colt.bitvector.BitVector;
+import cern.colt.map.OpenIntIntHashMap;
+import io.coriolis.api.core.modules.ModuleMatcher;
+import io.coriolis.api.core.modules.ModuleSet;
+import io.coriolis.api.core.modules.Modules;
+import io.coriolis.api.core.spatial.NodeFilter;
+import io.coriolis.api.core.spatial.SystemKdTree;
+import io.coriolis.api.entities.StarSystem;
+import io.coriolis.api.entities.Station;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Union of the ships and modules sold by the stations beneath each node of a {@link SystemKdTree}.
+ * Bits are only ever added, so after stations lose ships or modules a summary is a superset until rebuilt.
+ *
+ * Every node also has a version, bumped whenever a station beneath it changes. Stations are only included by one
+ * thread at a time, and bump the versions after adding their bits, so a reader that sees a version also sees
+ * every bit included before it. Readers take no lock.
+ */
+public class NodeSummaries {
+
+    private final SystemKdTree tree;
+    private final int[] parent;
+    private final OpenIntIntHashMap leafOfSystem;
+    private final AtomicIntegerArray versions;
+    private final AtomicInteger changes;
+    private final long[] ships;     // Bit per Ship ordinal
+    private final BitVector[] standard;
+    private final BitVector[] internal;
+    private final BitVector[] hardpoint;
+    private final BitVector[] utility;
+
+    public NodeSummaries(SystemKdTree tree, Modules modules) {
+        int nodeCount = tree.nodeCount();
+        this.tree = tree;
+        parent = new int[nodeCount];
+        leafOfSystem = new OpenIntIntHashMap(tree.size());
+        versions = new AtomicIntegerArray(nodeCount);
+        changes = new AtomicInteger();
+        ships = new long[nodeCount];
+        standard = new BitVector[nodeCount];
+        internal = new BitVector[nodeCount];
+        hardpoint = new BitVector[nodeCount];
+        utility = new BitVector[nodeCount];
+
+        for (int node = 0; node < nodeCount; node++) {
+            standard[node] = new BitVector(modules.getStandardCount());
+            internal[node] = new BitVector(modules.getInternalCount());
+            hardpoint[node] = new BitVector(modules.getHardpointCount());
+            utility[node] = new BitVector(modules.getUtilityCount());
+
+            if (tree.isLeaf(node)) {
+                for (int slot = tree.leafStart(node); slot < tree.leafEnd(node); slot++) {
+                    leafOfSystem.put(tree.getSystem(slot).getId(), node);
+                    for (int st = tree.stationStart(slot); st < tree.stationEnd(slot); st++) {
+                        summarize(node, tree.getStation(st));
+                    }
+                }
+            } else {
+                parent[tree.leftChild(node)] = node;
+                parent[tree.rightChild(node)] = node;
+            }
+        }
+
+        // Children are numbered after their parents, so a reverse sweep sees every child before its parent
+        for (int node = nodeCount - 1; node > SystemKdTree.ROOT; node--) {
+            merge(parent[node], node);
+        }
+    }
+
+    public SystemKdTree getTree() {
+        return tree;
+    }
+
+    public int getVersion(int node) {
+        return versions.get(node);
+    }
+
+    /**
+     * @return Number of station changes included since the summaries were built, bumped like the versions
+     */
+    public int getChanges() {
+        return changes.get();
+    }
+
+    /**
+     * Adds a station's ships and modules to its leaf and every node above it, bumping their versions.
+     * Callers must not include stations concurrently.
+     * @return false if the station's system is not in the tree
+     */
+    public boolean include(StarSystem system, Station station) {
+        if (!leafOfSystem.containsKey(system.getId())) {
+            return false;
+        }
+        for (int node = leafOfSystem.get(system.getId()); ; node = parent[node]) {
+            summarize(node, station);
+            versions.incrementAndGet(node);
+            if (node == SystemKdTree.ROOT) {
+                changes.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return A filter rejecting nodes without a station selling the ship or any of the matchers' modules
+     */
+    public NodeFilter filterFor(final Ship ship,
+                                final ModuleMatcher standardMatcher,
+                                final ModuleMatcher internalMatcher,
+                                final ModuleMatcher hardpointMatcher,
+                                final ModuleMatcher utilityMatcher) {
+        final long shipBit = ship != null ? 1L << ship.ordinal() : 0;
+
+        return new NodeFilter() {
+            @Override
+            public boolean accept(int node) {
+                return (ships[node] & shipBit) != 0
+                        || intersects(standard[node], standardMatcher)
+                        || intersects(internal[node], internalMatcher)
+                        || intersects(hardpoint[node], hardpointMatcher)
+                        || intersects(utility[node], utilityMatcher);
+            }
+        };
+    }
+
+    private void summarize(int node, Station station) {
+        if (station.getShipSet() != null) {
+            for (Ship ship : station.getShipSet()) {
+                ships[node] |= 1L << ship.ordinal();
+            }
+        }
+        or(standard[node], station.getStandardSet());
+        or(internal[node], station.getInternalSet());
+        or(hardpoint[node], station.getHardpointSet());
+        or(utility[node], station.getUtilitySet());
+    }
+
+    private void merge(int node, int child) {
+        ships[node] |= ships[child];
+        standard[node].or(standard[child]);
+        internal[node].or(internal[child]);
+        hardpoint[node].or(hardpoint[child]);
+        utility[node].or(utility[child]);
+    }
+
+    private static void or(BitVector summary, ModuleSet set) {
+        if (set != null && set.getSet() != null) {
+            summary.or(set.getSet());
+        }
+    }
+
+    private static boolean intersects(BitVector summary, ModuleMatcher matcher) {
+        if (matcher == null) {
+            return false;
+        }
+        long[] a = summary.elements();
+        long[] b = matcher.getSet().elements();
+        for (int w = Math.min(a.length, b.length) - 1; w >= 0; w--) {
+            if ((a[w] & b[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,57 @@
+package io.coriolis.api.core;
+
+import cern.colt.bitvector.BitVector;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+
+/**
+ * Index of ships to the stations whose shipyard sells them. Bit N of a ship's bitmap is set
+ * if the station with ordinal N sells it.
+ */
+public class ShipIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final EnumMap<Ship, BitVector> postings;
+    private int capacity;
+
+    public ShipIndex() {
+        capacity = INITIAL_CAPACITY;
+        postings = new EnumMap<>(Ship.class);
+        for (Ship ship : Ship.values()) {
+            postings.put(ship, new BitVector(capacity));
+        }
+    }
+
+    public synchronized void add(int stationOrdinal, EnumSet<Ship> ships) {
+        if (ships == null) {
+            return;
+        }
+        if (stationOrdinal >= capacity) {
+            capacity = Math.max(stationOrdinal + 1, capacity * 2);
+            for (BitVector posting : postings.values()) {
+                posting.setSize(capacity);
+            }
+        }
+        for (Ship ship : ships) {
+            postings.get(ship).putQuick(stationOrdinal, true);
+        }
+    }
+
+    public synchronized void remove(int stationOrdinal, EnumSet<Ship> ships) {
+        if (ships == null || stationOrdinal >= capacity) {
+            return;
+        }
+        for (Ship ship : ships) {
+            postings.get(ship).putQuick(stationOrdinal, false);
+        }
+    }
+
+    /**
+     * @return A copy of the bitmap of ordinals of stations selling the ship
+     */
+    public synchronized BitVector stationsWith(Ship ship) {
+        return postings.get(ship).copy();
+    }
+}
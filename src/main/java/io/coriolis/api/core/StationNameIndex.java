@@ -0,0 +1,153 @@
+package io.coriolis.api.core;
+
+import cern.colt.list.IntArrayList;
+import cern.colt.list.ObjectArrayList;
+import cern.colt.map.OpenLongObjectHashMap;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index of lower cased station names across all systems to station ordinals, maintained as stations are
+ * loaded and renamed. Exact and prefix lookups use a sorted map of names, substring lookups check the
+ * stations in the shortest trigram posting list of the query.
+ */
+public class StationNameIndex {
+
+    private final TreeMap<String, IntArrayList> names;
+    private final OpenLongObjectHashMap trigrams;
+    private final ObjectArrayList nameByOrdinal;
+
+    public StationNameIndex() {
+        names = new TreeMap<>();
+        trigrams = new OpenLongObjectHashMap();
+        nameByOrdinal = new ObjectArrayList();
+    }
+
+    public synchronized void add(int stationOrdinal, String stationName) {
+        String name = stationName.toLowerCase();
+
+        while (nameByOrdinal.size() <= stationOrdinal) {
+            nameByOrdinal.add(null);
+        }
+        nameByOrdinal.setQuick(stationOrdinal, name);
+        postingFor(names, name).add(stationOrdinal);
+
+        for (int c = 0; c + 3 <= name.length(); c++) {
+            long trigram = NameTrigramIndex.trigram(name, c);
+            IntArrayList posting = (IntArrayList) trigrams.get(trigram);
+            if (posting == null) {
+                posting = new IntArrayList(4);
+                trigrams.put(trigram, posting);
+            }
+            if (posting.isEmpty() || posting.getQuick(posting.size() - 1) != stationOrdinal) {  // Once per station
+                posting.add(stationOrdinal);
+            }
+        }
+    }
+
+    public synchronized void rename(int stationOrdinal, String stationName) {
+        remove(stationOrdinal);
+        add(stationOrdinal, stationName);
+    }
+
+    /**
+     * @return Ordinals of up to limit stations with the name (any case)
+     */
+    public synchronized int[] named(String stationName, int limit) {
+        IntArrayList posting = names.get(stationName.toLowerCase());
+        return posting != null ? copyOf(posting, limit) : new int[0];
+    }
+
+    /**
+     * @return Ordinals of up to limit stations whose name starts with the prefix, in name order
+     */
+    public synchronized int[] startingWith(String prefix, int limit) {
+        String lower = prefix.toLowerCase();
+        IntArrayList found = new IntArrayList();
+
+        for (IntArrayList posting : names.subMap(lower, lower + Character.MAX_VALUE).values()) {
+            for (int i = 0; i < posting.size() && found.size() < limit; i++) {
+                found.add(posting.getQuick(i));
+            }
+            if (found.size() == limit) {
+                break;
+            }
+        }
+        return copyOf(found, limit);
+    }
+
+    /**
+     * @return Ordinals of up to limit stations whose name contains the part, which must be at least
+     * NameTrigramIndex.MIN_QUERY_LENGTH characters
+     */
+    public synchronized int[] containing(String part, int limit) {
+        String lower = part.toLowerCase();
+        IntArrayList shortest = null;
+
+        for (int c = 0; c + 3 <= lower.length(); c++) {
+            IntArrayList posting = (IntArrayList) trigrams.get(NameTrigramIndex.trigram(lower, c));
+            if (posting == null) {
+                return new int[0];
+            }
+            if (shortest == null || posting.size() < shortest.size()) {
+                shortest = posting;
+            }
+        }
+        if (shortest == null) {
+            throw new IllegalArgumentException("Substring must be at least " + NameTrigramIndex.MIN_QUERY_LENGTH + " characters: " + part);
+        }
+
+        IntArrayList found = new IntArrayList();
+        for (int i = 0; i < shortest.size() && found.size() < limit; i++) {
+            int ordinal = shortest.getQuick(i);
+            if (((String) nameByOrdinal.getQuick(ordinal)).contains(lower)) {
+                found.add(ordinal);
+            }
+        }
+        return copyOf(found, limit);
+    }
+
+    private void remove(int stationOrdinal) {
+        if (stationOrdinal >= nameByOrdinal.size() || nameByOrdinal.getQuick(stationOrdinal) == null) {
+            return;
+        }
+        String name = (String) nameByOrdinal.getQuick(stationOrdinal);
+        IntArrayList posting = names.get(name);
+
+        removeFrom(posting, stationOrdinal);
+        if (posting.isEmpty()) {
+            names.remove(name);
+        }
+        for (int c = 0; c + 3 <= name.length(); c++) {
+            removeFrom((IntArrayList) trigrams.get(NameTrigramIndex.trigram(name, c)), stationOrdinal);
+        }
+        nameByOrdinal.setQuick(stationOrdinal, null);
+    }
+
+    private static void removeFrom(IntArrayList posting, int stationOrdinal) {
+        for (int i = 0; i < posting.size(); i++) {
+            if (posting.getQuick(i) == stationOrdinal) {
+                posting.remove(i);
+                return;
+            }
+        }
+    }
+
+    private static IntArrayList postingFor(Map<String, IntArrayList> map, String name) {
+        IntArrayList posting = map.get(name);
+        if (posting == null) {
+            posting = new IntArrayList(1);
+            map.put(name, posting);
+        }
+        return posting;
+    }
+
+    private static int[] copyOf(IntArrayList list, int limit) {
+        int[] copy = new int[Math.min(list.size(), limit)];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = list.getQuick(i);
+        }
+        return copy;
+    }
+}
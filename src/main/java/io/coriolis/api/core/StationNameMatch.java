@@ -0,0 +1,10 @@
+package io.coriolis.api.core;
+
+/**
+ * How a station name search matches names
+ */
+public enum StationNameMatch {
+    EXACT,
+    PREFIX,
+    SUBSTRING
+}
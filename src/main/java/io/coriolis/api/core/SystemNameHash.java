@@ -0,0 +1,168 @@
+package io.coriolis.api.core;
+
+import io.coriolis.api.entities.StarSystem;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Case insensitive lookup of systems by name that allocates nothing for plain ASCII names. Names are kept in
+ * the {@link String#toLowerCase()} form the other name indexes use, packed into a single byte arena, and an
+ * ASCII query is lower cased one char at a time as it is hashed and compared instead of copied into a new
+ * string. Any other query is lower cased with {@link String#toLowerCase()} first, so both always agree.
+ *
+ * Slots hold system ordinals (plus one, zero is empty) and are probed linearly. Each name takes one byte per
+ * char in the arena if every char fits, two otherwise, so its width follows from its byte and char lengths.
+ */
+public class SystemNameHash {
+
+    private final StarSystem[] systems;
+    private final int[] hashes;
+    private final int[] offsets;    // Of each ordinal's name in the arena, one extra for the end of the last
+    private final int[] lengths;    // In chars
+    private final byte[] arena;
+    private final int[] slots;
+    private final int mask;
+
+    /**
+     * @param systemList Systems to index. Of systems with names differing only in case, the last one is found.
+     */
+    public SystemNameHash(List<StarSystem> systemList) {
+        int count = systemList.size();
+        String[] names = new String[count];
+        systems = systemList.toArray(new StarSystem[count]);
+        hashes = new int[count];
+        offsets = new int[count + 1];
+        lengths = new int[count];
+
+        for (int o = 0; o < count; o++) {
+            String name = names[o] = systems[o].getSystemName().toLowerCase();
+            hashes[o] = hash(name, false);
+            lengths[o] = name.length();
+            offsets[o + 1] = offsets[o] + (isNarrow(name) ? 1 : 2) * name.length();
+        }
+
+        arena = new byte[offsets[count]];
+        for (int o = 0; o < count; o++) {
+            String name = names[o];
+            boolean narrow = offsets[o + 1] - offsets[o] == name.length();
+            for (int c = 0, b = offsets[o]; c < name.length(); c++) {
+                char ch = name.charAt(c);
+                if (narrow) {
+                    arena[b++] = (byte) ch;
+                } else {
+                    arena[b++] = (byte) (ch >>> 8);
+                    arena[b++] = (byte) ch;
+                }
+            }
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(count, 4) * 2 - 1) << 1;    // At most half full
+        slots = new int[capacity];
+        mask = capacity - 1;
+
+        for (int o = 0; o < count; o++) {
+            int s = hashes[o] & mask;
+            while (slots[s] != 0 && !(hashes[slots[s] - 1] == hashes[o] && sameName(slots[s] - 1, names[o], false))) {
+                s = (s + 1) & mask;
+            }
+            slots[s] = o + 1;
+        }
+    }
+
+    public int size() {
+        return systems.length;
+    }
+
+    /**
+     * @return The system with this name in any case, or null
+     */
+    public StarSystem get(String name) {
+        if (!isPlainAscii(name)) {
+            return getLowerCased(name.toLowerCase());
+        }
+        return find(name, true);
+    }
+
+    /**
+     * @param lowerCasedName Name as {@link String#toLowerCase()} returns it, as the other name indexes hold them
+     * @return The system with this name, or null
+     */
+    public StarSystem getLowerCased(String lowerCasedName) {
+        return find(lowerCasedName, false);
+    }
+
+    private StarSystem find(String name, boolean lowerAscii) {
+        int hash = hash(name, lowerAscii);
+
+        for (int s = hash & mask; slots[s] != 0; s = (s + 1) & mask) {
+            int o = slots[s] - 1;
+            if (hashes[o] == hash && sameName(o, name, lowerAscii)) {
+                return systems[o];
+            }
+        }
+        return null;
+    }
+
+    private boolean sameName(int o, String name, boolean lowerAscii) {
+        if (lengths[o] != name.length()) {
+            return false;
+        }
+        boolean narrow = offsets[o + 1] - offsets[o] == name.length();
+
+        for (int c = 0, b = offsets[o]; c < name.length(); c++) {
+            char ch = charAt(name, c, lowerAscii);
+            if (narrow) {
+                if (ch > 0xFF || (char) (arena[b++] & 0xFF) != ch) {
+                    return false;
+                }
+            } else {
+                char stored = (char) (((arena[b] & 0xFF) << 8) | (arena[b + 1] & 0xFF));
+                b += 2;
+                if (stored != ch) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if lower casing the name one ASCII letter at a time gives what {@link String#toLowerCase()} would
+     */
+    private static boolean isPlainAscii(String name) {
+        String language = Locale.getDefault().getLanguage();
+        if (language.equals("tr") || language.equals("az")) {  // Lower case 'I' to a dotless i
+            return false;
+        }
+        for (int c = 0; c < name.length(); c++) {
+            if (name.charAt(c) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNarrow(String name) {
+        for (int c = 0; c < name.length(); c++) {
+            if (name.charAt(c) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(String name, boolean lowerAscii) {
+        int h = 0;
+        for (int c = 0; c < name.length(); c++) {
+            h = 31 * h + charAt(name, c, lowerAscii);
+        }
+        h *= 0x9E3779B9;    // Spread similar names (e.g. sequential catalogue numbers) across the table
+        return h ^ (h >>> 16);
+    }
+
+    private static char charAt(String name, int c, boolean lowerAscii) {
+        char ch = name.charAt(c);
+        return lowerAscii && ch >= 'A' && ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch;
+    }
+}
@@ -0,0 +1,198 @@
+package io.coriolis.api.core;
+
+import com.BoxOfC.MDAG.MDAG;
+import com.BoxOfC.MDAG.MDAGNode;
+import com.BoxOfC.MDAG.SimpleMDAGNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Lower cased system names as a compacted, simplified (array based, read only) MDAG plus a small delta
+ * MDAG of the names added since it was built. Both are queried together. Adding names builds a new
+ * delta and shares the compacted MDAG, so a published instance is never modified.
+ */
+public class SystemNames {
+
+    public static final int MAX_DELTA_NAMES = 1000;     // Compact once the delta grows past this
+
+    private final MDAG compacted;
+    private final MDAG delta;
+    private final SortedSet<String> deltaNames;
+    private final int longestName;  // In either MDAG, bounds the depth of any walk
+
+    private SystemNames(MDAG compacted, int longestCompacted, SortedSet<String> deltaNames) {
+        this.compacted = compacted;
+        this.deltaNames = Collections.unmodifiableSortedSet(deltaNames);
+        this.delta = new MDAG(deltaNames);
+        longestName = Math.max(longestCompacted, longest(deltaNames));
+    }
+
+    /**
+     * @param names Every name, sorted
+     */
+    public static SystemNames compact(SortedSet<String> names) {
+        MDAG compacted = new MDAG(names);
+        compacted.simplify();
+        return new SystemNames(compacted, longest(names), new TreeSet<String>());
+    }
+
+    /**
+     * @return Names with the added ones in the delta, or compacted if the delta would be too large. Names the
+     * compacted MDAG already holds (such as a system renamed back) are not repeated in the delta.
+     */
+    public SystemNames withAdded(Set<String> added, SortedSet<String> allNames) {
+        if (deltaNames.size() + added.size() > MAX_DELTA_NAMES) {
+            return compact(allNames);
+        }
+        SortedSet<String> nextDelta = new TreeSet<>(deltaNames);
+        for (String name : added) {
+            if (!compacted.contains(name)) {
+                nextDelta.add(name);
+            }
+        }
+        return new SystemNames(compacted, longestName, nextDelta);
+    }
+
+    public int deltaSize() {
+        return deltaNames.size();
+    }
+
+    public boolean contains(String name) {
+        return compacted.contains(name) || delta.contains(name);
+    }
+
+    /**
+     * Walks both MDAGs with a Levenshtein automaton (one edit distance row per character of the path),
+     * skipping any branch whose best possible distance is already over the limit. A name longer than any
+     * indexed one by more than maxDistance can match nothing, so it is not walked at all.
+     *
+     * @param name Lower cased name
+     * @return Up to limit names within maxDistance edits of the name, closest first
+     */
+    public List<String> similarTo(String name, int maxDistance, int limit) {
+        if (name.length() > longestName + maxDistance) {
+            return new ArrayList<>();
+        }
+        Levenshtein search = new Levenshtein(name, maxDistance, longestName);
+
+        search.walk(compacted.getSimpleMDAGArray(), (SimpleMDAGNode) compacted.getSourceNode(), 1);
+        search.walk((MDAGNode) delta.getSourceNode(), 1);
+        return search.closest(limit);
+    }
+
+    public MDAG getCompacted() {
+        return compacted;
+    }
+
+    private static int longest(Set<String> names) {
+        int longest = 0;
+        for (String name : names) {
+            longest = Math.max(longest, name.length());
+        }
+        return longest;
+    }
+
+    private static class Levenshtein {
+
+        private final String target;
+        private final int maxDistance;
+        private final int[][] rows;     // Row d holds the distances after d characters of the path, allocated on first use
+        private final StringBuilder path;
+        private final List<String> found;
+        private final List<Integer> distances;
+
+        /**
+         * @param longestName No path is longer, so no more rows are needed
+         */
+        private Levenshtein(String target, int maxDistance, int longestName) {
+            this.target = target;
+            this.maxDistance = maxDistance;
+            rows = new int[Math.max(1, Math.min(target.length() + maxDistance, longestName)) + 1][];  // Walks always take a first step
+            rows[0] = new int[target.length() + 1];
+            path = new StringBuilder();
+            found = new ArrayList<>();
+            distances = new ArrayList<>();
+
+            for (int j = 0; j <= target.length(); j++) {
+                rows[0][j] = j;
+            }
+        }
+
+        private void walk(SimpleMDAGNode[] nodes, SimpleMDAGNode node, int depth) {
+            int end = node.getTransitionSetBeginIndex() + node.getOutgoingTransitionSetSize();
+
+            for (int t = node.getTransitionSetBeginIndex(); t < end; t++) {
+                SimpleMDAGNode next = nodes[t];
+                if (step(next.getLetter(), next.isAcceptNode(), depth)) {
+                    walk(nodes, next, depth + 1);
+                }
+                path.setLength(depth - 1);
+            }
+        }
+
+        private void walk(MDAGNode node, int depth) {
+            for (int t = 0; t < node.getOutgoingTransitionCount(); t++) {
+                MDAGNode next = node.getOutgoingTransitionTarget(t);
+                if (step(node.getOutgoingTransitionLabel(t), next.isAcceptNode(), depth)) {
+                    walk(next, depth + 1);
+                }
+                path.setLength(depth - 1);
+            }
+        }
+
+        /**
+         * @return true if a longer path could still be within the limit
+         */
+        private boolean step(char letter, boolean accept, int depth) {
+            int[] previous = rows[depth - 1];
+            if (rows[depth] == null) {
+                rows[depth] = new int[target.length() + 1];
+            }
+            int[] row = rows[depth];
+            int best = row[0] = previous[0] + 1;
+
+            for (int j = 1; j <= target.length(); j++) {
+                int substitute = previous[j - 1] + (target.charAt(j - 1) == letter ? 0 : 1);
+                row[j] = Math.min(substitute, Math.min(previous[j], row[j - 1]) + 1);
+                best = Math.min(best, row[j]);
+            }
+            path.append(letter);
+
+            if (accept && row[target.length()] <= maxDistance) {
+                found.add(path.toString());
+                distances.add(row[target.length()]);
+            }
+            return best <= maxDistance && depth + 1 < rows.length;
+        }
+
+        private List<String> closest(int limit) {
+            Integer[] order = new Integer[found.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    int byDistance = distances.get(a) - distances.get(b);
+                    return byDistance != 0 ? byDistance : found.get(a).compareTo(found.get(b));
+                }
+            });
+
+            List<String> closest = new ArrayList<>();
+            for (int i = 0; i < order.length && closest.size() < limit; i++) {
+                String name = found.get(order[i]);
+                if (i == 0 || !name.equals(found.get(order[i - 1]))) {     // In both MDAGs, sorted next to each other
+                    closest.add(name);
+                }
+            }
+            return closest;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package io.coriolis.api.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Set cover of a build's items (the ship and each requested module) by candidate stations. Each candidate's
+ * items are a bitset of 64 bit words. Dominated candidates are dropped first, a greedy cover is the fallback
+ * answer and branch and bound then looks for a cover with fewer stops until the time budget runs out.
+ *
+ * The budget starts when the planner is created, so gathering candidates (see {@link #pastDeadline()}) and
+ * dropping dominated ones are charged against it too. Only the greedy cover always runs to the end.
+ */
+public class TourPlanner {
+
+    private final int words;
+    private final List<long[]> items;
+    private double[] distances;
+
+    private int[] bestChoice;
+    private int bestSize;
+    private double bestDistance;
+    private final long deadline;
+    private boolean timedOut;
+
+    public TourPlanner(int itemCount, long budgetNanos) {
+        deadline = System.nanoTime() + budgetNanos;
+        words = (itemCount + 63) >>> 6;
+        items = new ArrayList<>();
+        distances = new double[16];
+    }
+
+    public static void set(long[] bits, int item) {
+        bits[item >>> 6] |= 1L << item;
+    }
+
+    public long[] newItemSet() {
+        return new long[words];
+    }
+
+    /**
+     * @param stationItems Items sold by the candidate, from {@link #newItemSet()}
+     * @param distanceLY Distance of the candidate from the origin, used to break ties
+     * @return The candidate's index
+     */
+    public int add(long[] stationItems, double distanceLY) {
+        int candidate = items.size();
+        if (candidate == distances.length) {
+            distances = Arrays.copyOf(distances, candidate * 2);
+        }
+        items.add(stationItems);
+        distances[candidate] = distanceLY;
+        return candidate;
+    }
+
+    /**
+     * @return Items sold by at least one candidate
+     */
+    public long[] coverable() {
+        long[] union = newItemSet();
+        for (long[] candidate : items) {
+            for (int w = 0; w < words; w++) {
+                union[w] |= candidate[w];
+            }
+        }
+        return union;
+    }
+
+    /**
+     * @return Indexes of the fewest candidates (nearest, on ties) found within the budget that cover every coverable item
+     */
+    public int[] plan() {
+        Integer[] kept = undominated();
+        long[] uncovered = coverable();
+
+        greedy(kept, uncovered);
+        int[] chosen = new int[bestSize];
+        search(kept, uncovered, chosen, 0, 0);
+        return Arrays.copyOf(bestChoice, bestSize);
+    }
+
+    /**
+     * @return true once the budget has run out, for callers to stop adding candidates
+     */
+    public boolean pastDeadline() {
+        if (!timedOut && System.nanoTime() > deadline) {
+            timedOut = true;
+        }
+        return timedOut;
+    }
+
+    /**
+     * @return true if the budget ran out before the plan was finished, so it may miss candidates or have extra stops
+     */
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Candidates ordered by item count (then distance) so any that is a subset of one already kept can be dropped.
+     * Past the deadline the rest are kept without checking, and if it has already passed all are kept as added.
+     */
+    private Integer[] undominated() {
+        Integer[] order = new Integer[items.size()];
+        if (pastDeadline()) {
+            for (int c = 0; c < order.length; c++) {
+                order[c] = c;
+            }
+            return order;
+        }
+        final int[] counts = new int[items.size()];
+
+        for (int c = 0; c < order.length; c++) {
+            order[c] = c;
+            counts[c] = cardinality(items.get(c));
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (counts[a] != counts[b]) {
+                    return counts[b] - counts[a];
+                }
+                return Double.compare(distances[a], distances[b]);
+            }
+        });
+
+        List<Integer> kept = new ArrayList<>();
+        for (Integer candidate : order) {
+            boolean dominated = counts[candidate] == 0;
+            for (int k = 0; k < kept.size() && !dominated && !timedOut; k++) {
+                dominated = isSubset(items.get(candidate), items.get(kept.get(k)));
+            }
+            if (!dominated) {
+                kept.add(candidate);
+            }
+            pastDeadline();
+        }
+        Collections.sort(kept, new Comparator<Integer>() {    // Nearest first, so the search tries near stations first
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(distances[a], distances[b]);
+            }
+        });
+        return kept.toArray(new Integer[kept.size()]);
+    }
+
+    private void greedy(Integer[] kept, long[] uncovered) {
+        long[] remaining = uncovered.clone();
+        List<Integer> chosen = new ArrayList<>();
+        double distance = 0;
+
+        while (!isEmpty(remaining)) {
+            int pick = -1, pickCount = 0;
+            for (Integer candidate : kept) {
+                int count = intersectionCount(items.get(candidate), remaining);
+                if (count > pickCount) {    // Candidates are nearest first, so ties keep the nearer
+                    pick = candidate;
+                    pickCount = count;
+                }
+            }
+            chosen.add(pick);
+            distance += distances[pick];
+            andNot(remaining, items.get(pick));
+        }
+
+        bestSize = chosen.size();
+        bestChoice = new int[bestSize];
+        for (int c = 0; c < bestSize; c++) {
+            bestChoice[c] = chosen.get(c);
+        }
+        bestDistance = distance;
+    }
+
+    /**
+     * Branches on the candidates covering the lowest uncovered item, any cover must include one of them
+     */
+    private void search(Integer[] kept, long[] uncovered, int[] chosen, int depth, double distance) {
+        if (isEmpty(uncovered)) {
+            if (depth < bestSize || (depth == bestSize && distance < bestDistance)) {
+                bestSize = depth;
+                bestDistance = distance;
+                bestChoice = Arrays.copyOf(chosen, depth);
+            }
+            return;
+        }
+        if (depth + 1 > bestSize || (depth + 1 == bestSize && distance >= bestDistance)) {
+            return;
+        }
+        if (pastDeadline()) {
+            return;
+        }
+
+        int item = lowestItem(uncovered);
+
+        for (Integer candidate : kept) {
+            long[] candidateItems = items.get(candidate);
+            if ((candidateItems[item >>> 6] & (1L << item)) == 0) {
+                continue;
+            }
+            long[] next = new long[words];
+            for (int w = 0; w < words; w++) {
+                next[w] = uncovered[w] & ~candidateItems[w];
+            }
+            chosen[depth] = candidate;
+            search(kept, next, chosen, depth + 1, distance + distances[candidate]);
+            if (timedOut) {
+                return;
+            }
+        }
+    }
+
+    private int lowestItem(long[] bits) {
+        for (int w = 0; w < words; w++) {
+            if (bits[w] != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(bits[w]);
+            }
+        }
+        return -1;
+    }
+
+    private boolean isEmpty(long[] bits) {
+        for (int w = 0; w < words; w++) {
+            if (bits[w] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSubset(long[] a, long[] b) {
+        for (int w = 0; w < words; w++) {
+            if ((a[w] & ~b[w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int cardinality(long[] bits) {
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(bits[w]);
+        }
+        return count;
+    }
+
+    private int intersectionCount(long[] a, long[] b) {
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(a[w] & b[w]);
+        }
+        return count;
+    }
+
+    private void andNot(long[] bits, long[] remove) {
+        for (int w = 0; w < words; w++) {
+            bits[w] &= ~remove[w];
+        }
+    }
+}
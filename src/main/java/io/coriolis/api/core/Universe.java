@@ -1,37 +1,59 @@
 package io.coriolis.api.core;
 
-import cern.colt.matrix.impl.SparseObjectMatrix3D;
-import com.BoxOfC.MDAG.MDAG;
+import cern.colt.bitvector.BitVector;
+import cern.colt.list.IntArrayList;
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import io.coriolis.api.core.modules.*;
 import io.coriolis.api.core.modules.exceptions.UnknownShipException;
+import io.coriolis.api.core.spatial.DistanceOrderedTraversal;
+import io.coriolis.api.core.spatial.NodeFilter;
+import io.coriolis.api.core.spatial.QueryStats;
+import io.coriolis.api.core.spatial.RadiusStopCondition;
+import io.coriolis.api.core.spatial.StopCondition;
+import io.coriolis.api.core.spatial.SystemKdTree;
 import io.coriolis.api.entities.BuildStationCandidate;
+import io.coriolis.api.entities.BuildTour;
+import io.coriolis.api.entities.FoundStation;
+import io.coriolis.api.entities.NearbySystem;
 import io.coriolis.api.entities.StarSystem;
 import io.coriolis.api.entities.Station;
+import io.coriolis.api.entities.TourStop;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Universe {
 
     final static Logger logger = LoggerFactory.getLogger(Universe.class);
 
-    public static final int INHABITED_RANGE_LY = 2000; // Conservative Max Distance from Sol * 2 (current max is Sothis 494.49 ly)
-    public static final int SECTOR_SIZE_LY = 100;  // 100 Light years cubed
-    public static final int SECTOR_RANGE = INHABITED_RANGE_LY / SECTOR_SIZE_LY; // Max number of sectors in a dimension
-    public static final int SECTOR_MAX = SECTOR_RANGE / 2;
-    public static final int SECTOR_MIN = SECTOR_MAX * -1;
-    public static final int SEARCH_SURROUNDING_SECTORS = 5;   // Search area (cube of sectors of side size N)
+    public static final int FULL_BUILD_SLACK_LY = 100;  // How much further than the nearest full build to look for alternatives
+    public static final int MAX_SEARCH_RADIUS_LY = 500;   // Search area (sphere around the origin system)
     public static final int MAX_RESULTS = 15;
-    public static final BuildStationCandidateComparator bscComparator = new BuildStationCandidateComparator();
-
-    private Map<String, StarSystem> systemsNameMap;
-    private Map<Integer, StarSystem> systemsIdMap;
-    private MDAG systemNamesMDAG;
-    private SparseObjectMatrix3D sectors;
+    public static final int FIND_NEAR_CACHE_SIZE = 1000;
+    public static final long TOUR_TIME_BUDGET_MS = 50;    // Time allowed to gather candidates and improve on the greedy tour
+    public static final int MAX_SUGGESTIONS = 5;
+    public static final int MAX_SUGGESTION_DISTANCE = 2;   // Edits allowed for suggestions, 1 for short names
+    public static final int SHORT_NAME_LENGTH = 4;
+    public static final int MAX_SUGGESTED_NAME_LENGTH = 100;    // Longer unknown names get no suggestions
+
+    private volatile UniverseSnapshot snapshot;
+    private volatile NodeSummaries nodeSummaries;   // Hold the spatial index they summarize, searches read only this
+    private final ReentrantLock updateLock = new ReentrantLock();   // Held from beginUpdate until publish
+    // Published stations EDDN updated since the update began, whose copies in it take the EDDN data on publish
+    private final Set<Station> shipyardsFromEDDN = Collections.newSetFromMap(new IdentityHashMap<Station, Boolean>());
+    private final Set<Station> outfittingsFromEDDN = Collections.newSetFromMap(new IdentityHashMap<Station, Boolean>());
+    private List<Station> stations;     // Indexed by station ordinal
+    private ModuleIndex moduleIndex;
+    private ShipIndex shipIndex;
+    private StationNameIndex stationNameIndex;
+    private FindNearCache findNearCache;
 
     private Counter unknownSystems;
     private Counter unknownStations;
@@ -42,11 +64,24 @@ public class Universe {
     private Counter stationHasOutfittingData;
     private Counter stationHasShipyardData;
     private Counter systemCounter;
+    private Meter systemUpdates;
+    private Timer systemNamesBuilds;
+    private Timer spatialIndexBuilds;
 
     public Universe(MetricRegistry metrics) {
-        systemsNameMap = new HashMap<>();
-        systemsIdMap = new HashMap<>();
-        sectors = new SparseObjectMatrix3D(SECTOR_RANGE, SECTOR_RANGE, SECTOR_RANGE);
+        this(metrics, SystemKdTree.DEFAULT_LEAF_SIZE);
+    }
+
+    /**
+     * @param spatialIndexLeafSize Most systems a spatial index leaf may hold before it is split
+     */
+    public Universe(MetricRegistry metrics, int spatialIndexLeafSize) {
+        snapshot = UniverseSnapshot.empty(spatialIndexLeafSize);
+        stations = new ArrayList<>();
+        moduleIndex = new ModuleIndex(Modules.INSTANCE);
+        shipIndex = new ShipIndex();
+        stationNameIndex = new StationNameIndex();
+        nodeSummaries = new NodeSummaries(snapshot.getSpatialIndex(), Modules.INSTANCE);
         unknownSystems = metrics.counter("unknownSystems");
         unknownStations = metrics.counter("unknownStations");
         stationUpdates = metrics.meter("stationUpdates");
@@ -56,172 +91,528 @@ public class Universe {
         stationWithShipyard = metrics.counter("stationWithShipyard");
         stationHasOutfittingData = metrics.counter("stationHasOutfittingData");
         stationHasShipyardData = metrics.counter("stationHasShipyardData");
-        systemNamesMDAG = new MDAG(new ArrayList<String>());
+        findNearCache = new FindNearCache(FIND_NEAR_CACHE_SIZE, metrics);
+        systemUpdates = metrics.meter("systemUpdates");
+        systemNamesBuilds = metrics.timer("systemNamesBuilds");
+        spatialIndexBuilds = metrics.timer("spatialIndexBuilds");
+        metrics.register("systemNamesDelta", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return snapshot.getSystemNames().deltaSize();
+            }
+        });
+        metrics.register("systemNamesTransitions", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return snapshot.getSystemNames().getCompacted().getTransitionCount();
+            }
+        });
+    }
+
+    public UniverseSnapshot getSnapshot() {
+        return snapshot;
     }
 
     public StarSystem getSystem(String systemName) {
-        return systemsNameMap.get(systemName.toLowerCase());
+        return snapshot.getSystem(systemName);
     }
 
     public StarSystem getSystem(int id) {
-        return systemsIdMap.get(id);
+        return snapshot.getSystem(id);
     }
 
+    /**
+     * @param namePart At least NameTrigramIndex.MIN_QUERY_LENGTH characters
+     */
     public Set<String> findSystemsWithName(String namePart) {
+        UniverseSnapshot current = snapshot;
         Set<String> systemsWithName = new HashSet<>();
 
-        for(String s : systemNamesMDAG.getStringsWithSubstring(namePart.toLowerCase())) {
-            systemsWithName.add(getSystem(s).getSystemName()); // Return proper name case
+        for(String s : current.getSystemNamesIndex().namesContaining(namePart.toLowerCase())) {
+            systemsWithName.add(current.getSystemByLowerCasedName(s).getSystemName()); // Return proper name case
         }
         return systemsWithName;
     }
 
+    /**
+     * @return Up to limit system names starting with the prefix, an exact match first then populated systems
+     */
+    public List<String> completeSystemName(String prefix, int limit) {
+        UniverseSnapshot current = snapshot;
+        List<String> completions = current.getSystemNameCompletions().complete(prefix.toLowerCase(), limit);
+
+        for (int i = 0; i < completions.size(); i++) {
+            completions.set(i, current.getSystemByLowerCasedName(completions.get(i)).getSystemName()); // Return proper name case
+        }
+        return completions;
+    }
+
+    /**
+     * @return Known system names closest to a misspelt one, for "did you mean" suggestions
+     */
+    public List<String> suggestSystemNames(String systemName) {
+        if (systemName.length() > MAX_SUGGESTED_NAME_LENGTH) {
+            return new ArrayList<>();
+        }
+        UniverseSnapshot current = snapshot;
+        String name = systemName.toLowerCase();
+        int maxDistance = name.length() <= SHORT_NAME_LENGTH ? 1 : MAX_SUGGESTION_DISTANCE;
+        List<String> suggestions = current.getSystemNames().similarTo(name, maxDistance, MAX_SUGGESTIONS);
+
+        for (int i = 0; i < suggestions.size(); i++) {
+            suggestions.set(i, current.getSystemByLowerCasedName(suggestions.get(i)).getSystemName()); // Return proper name case
+        }
+        return suggestions;
+    }
+
+    /**
+     * @param match How the name is matched, a substring must be at least NameTrigramIndex.MIN_QUERY_LENGTH characters
+     * @return Up to limit stations of the published snapshot in any system, with their system names
+     */
+    public List<FoundStation> findStationsWithName(String name, StationNameMatch match, int limit) {
+        UniverseSnapshot current = snapshot;
+        List<FoundStation> found = new ArrayList<>();
+        int fetch = limit;
+
+        // The index also holds stations of a snapshot being built, so they are filtered out before the limit
+        // applies, fetching more ordinals while the index may still have published stations past the last fetch
+        while (true) {
+            int[] ordinals = stationOrdinalsWithName(name, match, fetch);
+            found.clear();
+
+            for (int n = 0; n < ordinals.length && found.size() < limit; n++) {
+                Station indexed;
+                synchronized (stations) {
+                    indexed = stations.get(ordinals[n]);
+                }
+                StarSystem system = current.getSystem(indexed.getSystemId());
+                Station station = system != null ? system.getStation(indexed.getId()) : null;
+                if (station != null) {
+                    found.add(new FoundStation(system.getSystemName(), station));
+                }
+            }
+            if (found.size() == limit || ordinals.length < fetch || fetch == Integer.MAX_VALUE) {
+                return found;
+            }
+            fetch = fetch > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : fetch * 2;
+        }
+    }
+
+    private int[] stationOrdinalsWithName(String name, StationNameMatch match, int limit) {
+        switch (match) {
+            case EXACT:
+                return stationNameIndex.named(name, limit);
+            case PREFIX:
+                return stationNameIndex.startingWith(name, limit);
+            default:
+                return stationNameIndex.containing(name, limit);
+        }
+    }
+
+    /**
+     * @return Up to k other systems within the radius of the origin, nearest first
+     */
+    public NearbySystem[] findSystemsNear(StarSystem origin, double radiusLY, int k) {
+        List<StarSystem> found = snapshot.getSpatialIndex().nearest(origin.getX(), origin.getY(), origin.getZ(), k + 1, radiusLY);
+        List<NearbySystem> nearby = new ArrayList<>(k);
+
+        for (StarSystem system : found) {
+            if (system.getId() != origin.getId() && nearby.size() < k) {    // Origin is (nearly) always the nearest
+                nearby.add(new NearbySystem(system, origin.lightYearsFrom(system)));
+            }
+        }
+        return nearby.toArray(new NearbySystem[nearby.size()]);
+    }
+
+    /**
+     * Updates run one at a time, so each builds on the snapshot published by the one before instead of two
+     * refreshes copying the same snapshot and the later publish silently dropping the earlier one's changes.
+     * Readers are not affected, they only ever read the published snapshot.
+     *
+     * @return A builder for the next snapshot, to be passed to the EDDB update methods and then published.
+     * The caller must call {@link #endUpdate()} in a finally block in case it never publishes.
+     */
+    public UniverseSnapshot.Builder beginUpdate() {
+        updateLock.lock();
+        synchronized (this) {   // Copies made from here on see every EDDN update recorded before
+            shipyardsFromEDDN.clear();
+            outfittingsFromEDDN.clear();
+            return snapshot.toBuilder();
+        }
+    }
+
+    /**
+     * Lets the next update begin if the one begun by this thread was not published
+     */
+    public void endUpdate() {
+        if (updateLock.isHeldByCurrentThread()) {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Builds the next snapshot off to the side and swaps it in. Readers never block, station updates only
+     * wait for the node summaries to be rebuilt (tightening them) so none of them are missed. Stations the
+     * update added or replaced reach the station list and indexes here, along with the snapshot. A copy
+     * replacing a station EDDN updated after the update began takes the EDDN shipyard or outfitting first.
+     */
+    public void publish(UniverseSnapshot.Builder next) {
+        try {
+            publishSnapshot(next);
+        } finally {
+            endUpdate();
+        }
+    }
+
+    private void publishSnapshot(UniverseSnapshot.Builder next) {
+        int ordinal;
+        synchronized (stations) {
+            ordinal = stations.size();
+        }
+        for (Station station : next.getAddedStations()) {     // Before the build, the spatial index records them
+            station.setOrdinal(ordinal++);
+        }
+        UniverseSnapshot built = next.build();
+
+        if (next.getNamesBuildNanos() >= 0) {
+            systemNamesBuilds.update(next.getNamesBuildNanos(), TimeUnit.NANOSECONDS);
+        }
+        if (next.getSpatialIndexBuildNanos() >= 0) {
+            spatialIndexBuilds.update(next.getSpatialIndexBuildNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        synchronized (this) {
+            for (Station station : next.getAddedStations()) {
+                indexStation(station);
+            }
+            for (Station station : next.getReplacedStations()) {
+                reindexStation(station);
+            }
+            shipyardsFromEDDN.clear();
+            outfittingsFromEDDN.clear();
+            nodeSummaries = new NodeSummaries(built.getSpatialIndex(), Modules.INSTANCE);
+            snapshot = built;
+        }
+        systemCounter.inc(built.systemCount() - systemCounter.getCount());
+    }
+
     public BuildStationCandidate[] findNear(StarSystem current,
                                             Ship ship,
                                             ModuleMatcher standardMatcher,
                                             ModuleMatcher internalMatcher,
                                             ModuleMatcher hardpointMatcher,
                                             ModuleMatcher utilityMatcher) {
-        PriorityQueue<BuildStationCandidate> candidates = new PriorityQueue<>(20, bscComparator);
-        int oX = current.getSectorX();
-        int oY = current.getSectorY();
-        int oZ = current.getSectorZ();
-        int sectorRadius = 0;
-        double moduleCount = (standardMatcher != null ? standardMatcher.count() : 0)
-                + (internalMatcher != null ? internalMatcher.count() : 0)
-                + (hardpointMatcher != null ? hardpointMatcher.count() : 0)
-                + (utilityMatcher != null ? utilityMatcher.count() : 0);
-
-        boolean buildFound = false;
-
-        while (sectorRadius < SEARCH_SURROUNDING_SECTORS && !buildFound) {
-            int sectorMin = sectorRadius * -1;
-
-            for (int x = sectorMin; x <= sectorRadius; x++ ) {
-                for (int y = sectorMin; y <= sectorRadius; y++ ) {
-                    for (int z = sectorMin; z <= sectorRadius; z++ ) {
-                        if(x != sectorMin || x != sectorRadius || y != sectorMin || y != sectorRadius || z != sectorMin || z != sectorRadius) {
-                            // Do not search sectors inside the radius as they will already have been searched
-                            // This can probably be improved
-                            continue;
-                        }
+        NodeSummaries summaries = nodeSummaries;
+        FindNearCache.Key cacheKey = new FindNearCache.Key(current.getId(), ship, standardMatcher, internalMatcher, hardpointMatcher, utilityMatcher);
+        BuildStationCandidate[] cached = findNearCache.get(cacheKey, summaries);
+
+        if (cached != null) {
+            return cached;
+        }
 
-                        List<StarSystem> sector = getSector(oX + x, oY + y, oZ + z);
+        int changes = summaries.getChanges();   // Before the search reads any station data
+        IntArrayList nodeVersions = new IntArrayList();  // Every node visited or pruned, and its version at the time
+        BuildStationCandidate[] results = findNear(summaries, current, ship, standardMatcher, internalMatcher, hardpointMatcher, utilityMatcher, nodeVersions, null);
 
-                        if (sector == null) {
-                            continue;
-                        }
+        if (summaries.getChanges() == changes) {    // Otherwise a station may have changed after it was read but before its version
+            nodeVersions.trimToSize();
+            findNearCache.put(cacheKey, summaries, nodeVersions.elements(), results);
+        }
+        return results;
+    }
+
+    /**
+     * Searches like {@link #findNear(StarSystem, Ship, ModuleMatcher, ModuleMatcher, ModuleMatcher, ModuleMatcher)}
+     * but without the cache, for benchmarks
+     * @param stats Counts of leaves, systems and station positions scanned are added to it
+     */
+    public BuildStationCandidate[] findNear(StarSystem current,
+                                            Ship ship,
+                                            ModuleMatcher standardMatcher,
+                                            ModuleMatcher internalMatcher,
+                                            ModuleMatcher hardpointMatcher,
+                                            ModuleMatcher utilityMatcher,
+                                            QueryStats stats) {
+        return findNear(nodeSummaries, current, ship, standardMatcher, internalMatcher, hardpointMatcher, utilityMatcher, new IntArrayList(), stats);
+    }
+
+    /**
+     * @param nodeVersions Every node visited or pruned, and its version at the time, are added to it
+     * @param stats May be null
+     */
+    private BuildStationCandidate[] findNear(final NodeSummaries summaries,
+                                             StarSystem current,
+                                             Ship ship,
+                                             ModuleMatcher standardMatcher,
+                                             ModuleMatcher internalMatcher,
+                                             ModuleMatcher hardpointMatcher,
+                                             ModuleMatcher utilityMatcher,
+                                             final IntArrayList nodeVersions,
+                                             QueryStats stats) {
+        SystemKdTree index = summaries.getTree();
+        final NodeFilter relevant = summaries.filterFor(ship, standardMatcher, internalMatcher, hardpointMatcher, utilityMatcher);
+        double oX = current.getX(), oY = current.getY(), oZ = current.getZ();
+        double maxDistanceSquared = MAX_SEARCH_RADIUS_LY * MAX_SEARCH_RADIUS_LY;
+        DistanceOrderedTraversal traversal = index.traversal(oX, oY, oZ);
+        BuildSearch search = new BuildSearch(ship, standardMatcher, internalMatcher, hardpointMatcher, utilityMatcher);
+        int leaf;
+
+        // Skip subtrees where no station sells the ship or any of the modules
+        traversal.setFilter(new NodeFilter() {
+            @Override
+            public boolean accept(int node) {
+                int version = summaries.getVersion(node);
+                if (relevant.accept(node)) {
+                    return true;
+                }
+                nodeVersions.add(node);
+                nodeVersions.add(version);
+                return false;
+            }
+        });
+
+        if (stats != null) {
+            stats.query();
+        }
+        // Leaves are visited in increasing minimum distance from the current system
+        while ((leaf = traversal.nextLeaf(search)) != -1) {
+            nodeVersions.add(leaf);
+            nodeVersions.add(summaries.getVersion(leaf));
+            if (stats != null) {
+                stats.visited(index.leafEnd(leaf) - index.leafStart(leaf), index.stationStart(index.leafEnd(leaf)) - index.stationStart(index.leafStart(leaf)));
+            }
+
+            for (int n = index.leafStart(leaf); n < index.leafEnd(leaf); n++) {
+                double distanceSquared = index.distanceSquared(n, oX, oY, oZ);
+
+                if (distanceSquared > maxDistanceSquared) {    // Filter on the coordinate columns before touching the system
+                    continue;
+                }
+
+                for (int st = index.stationStart(n); st < index.stationEnd(n); st++) {
+                    search.consider(index, n, st, distanceSquared);
+                }
+            }
+        }
+
+        return search.results(index);
+    }
+
+    /**
+     * Runs several build searches from the same system in a single traversal. Each station is matched against
+     * every search still running, and a search stops taking candidates exactly where it would have on its own.
+     * @return The results of each query, in the same order
+     */
+    public BuildStationCandidate[][] findNear(StarSystem current, BuildQuery[] queries) {
+        NodeSummaries summaries = nodeSummaries;
+        SystemKdTree index = summaries.getTree();
+        double oX = current.getX(), oY = current.getY(), oZ = current.getZ();
+        double maxDistanceSquared = MAX_SEARCH_RADIUS_LY * MAX_SEARCH_RADIUS_LY;
+        DistanceOrderedTraversal traversal = index.traversal(oX, oY, oZ);
+        final BuildSearch[] searches = new BuildSearch[queries.length];
+        final NodeFilter[] relevant = new NodeFilter[queries.length];
+        int leaf;
+
+        for (int q = 0; q < queries.length; q++) {
+            BuildQuery query = queries[q];
+            searches[q] = new BuildSearch(query.getShip(), query.getStandard(), query.getInternal(), query.getHardpoint(), query.getUtility());
+            relevant[q] = summaries.filterFor(query.getShip(), query.getStandard(), query.getInternal(), query.getHardpoint(), query.getUtility());
+        }
+
+        // Skip subtrees that none of the running searches are interested in
+        traversal.setFilter(new NodeFilter() {
+            @Override
+            public boolean accept(int node) {
+                for (int q = 0; q < searches.length; q++) {
+                    if (!searches[q].done && relevant[q].accept(node)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        });
+
+        StopCondition allDone = new StopCondition() {
+            @Override
+            public boolean shouldStop(double nextMinDistanceLY) {
+                boolean all = true;
+                for (BuildSearch search : searches) {
+                    if (!search.done) {
+                        search.done = search.shouldStop(nextMinDistanceLY);
+                        all &= search.done;
+                    }
+                }
+                return all;
+            }
+        };
+
+        while ((leaf = traversal.nextLeaf(allDone)) != -1) {
+            for (int n = index.leafStart(leaf); n < index.leafEnd(leaf); n++) {
+                double distanceSquared = index.distanceSquared(n, oX, oY, oZ);
 
-                        for (StarSystem system : sector) {
-                            for (Station station : system.getStations()) {
-                                int modulesFound = 0;
-                                double score = 0;
-                                boolean hasShip = ship == null ? false : station.hasShip(ship);
-
-                                if (moduleCount > 0) {
-                                    if (standardMatcher != null) {
-                                        modulesFound += standardMatcher.match(station.getStandardSet());
-                                    }
-                                    if (internalMatcher != null) {
-                                        modulesFound += internalMatcher.match(station.getInternalSet());
-                                    }
-                                    if (hardpointMatcher != null) {
-                                        modulesFound += hardpointMatcher.match(station.getHardpointSet());
-                                    }
-                                    if (utilityMatcher != null) {
-                                        modulesFound += utilityMatcher.match(station.getUtilitySet());
-                                    }
-                                    score = modulesFound / moduleCount;
-                                }
-
-                                if (hasShip) {
-                                    score += 1;
-                                }
-
-                                if (score > 0) {
-                                    candidates.offer(new BuildStationCandidate(system.getSystemName(), station, hasShip, score, modulesFound, system.lightYearsFrom(current)));
-                                    if (score == 2) {
-                                        // All components and Ship found but continue searching for other options with in the current radius
-                                        buildFound = true;
-                                    }
-                                }
-                                if (candidates.size() >= MAX_RESULTS) { // Trim search results
-                                    candidates.poll();
-                                }
-                            }
+                if (distanceSquared > maxDistanceSquared) {
+                    continue;
+                }
+
+                for (int st = index.stationStart(n); st < index.stationEnd(n); st++) {
+                    for (BuildSearch search : searches) {
+                        if (!search.done) {
+                            search.consider(index, n, st, distanceSquared);
                         }
                     }
                 }
             }
-            sectorRadius++;
         }
 
-        return candidates.toArray(new BuildStationCandidate[candidates.size()]);
-    }
+        BuildStationCandidate[][] results = new BuildStationCandidate[searches.length][];
 
-    public void loadSystem(StarSystem system) {
-        systemsIdMap.put(system.getId(), system);
-        systemsNameMap.put(system.getSystemName().toLowerCase(), system);
-        systemNamesMDAG.addString(system.getSystemName().toLowerCase());
-        addSystemToSector(system);
-        systemCounter.inc();
+        for (int q = 0; q < searches.length; q++) {
+            results[q] = searches[q].results(index);
+        }
+        return results;
     }
 
-    public StarSystem updateSystemFromEDDB(int id, String systemName, double x, double y, double z, boolean needsPermit) {
+    public StarSystem updateSystemFromEDDB(UniverseSnapshot.Builder next, int id, String systemName, double x, double y, double z, boolean needsPermit) {
+        StarSystem existingSystem = next.getSystem(id);
+        systemUpdates.mark();   // Refresh progress
+
         // Known / Existing Star System
-        if (systemsIdMap.containsKey(id)) {
-            StarSystem existingSystem = systemsIdMap.get(id);
-            boolean updated = false;
-            if(!systemName.equals(existingSystem.getSystemName())) {        // System name changes (case sensitive)
-                systemNamesMDAG.removeString(existingSystem.getSystemName());
-                systemNamesMDAG.addString(systemName.toLowerCase());
-                existingSystem.setSystemName(systemName);
-                updated = true;
-            }
-            if(existingSystem.getNeedsPermit() != needsPermit) {    // Permit required changed
+        if (existingSystem != null) {
+            boolean renamed = !systemName.equals(existingSystem.getSystemName());   // System name changes (case sensitive)
+            boolean permitChanged = existingSystem.getNeedsPermit() != needsPermit;
+            boolean moved = !existingSystem.hasCoordinates(x, y, z);
+
+            if (!renamed && !permitChanged && !moved) {
+                return null;
+            }
+            existingSystem = next.edit(id);     // Published snapshot keeps the unmodified system
+            if(renamed) {
+                next.rename(existingSystem, systemName);
+            }
+            if(permitChanged) {    // Permit required changed
                 existingSystem.setNeedsPermit(needsPermit);
-                updated = true;
             }
-            if(!existingSystem.hasCoordinates(x, y, z)) {   // System coordinates need updating
-                if (!existingSystem.isInSectorWithCoordinates(x, y, z)) {  // Sector needs updating
-                    getSectorFor(existingSystem).remove(existingSystem);    // Remove from current sector
-                    existingSystem.setCoordinates(x, y, z);  // Update existing system coordinates
-                    addSystemToSector(existingSystem);  // Add to corrected sector
-                }
+            if(moved) {   // System coordinates need updating
                 existingSystem.setCoordinates(x, y, z);
-                updated = true;
             }
-            return updated ? existingSystem : null;
+            return existingSystem;
         // Previously unknown Star System
-        } else if (areCoordinatesInRange(x, y, z)) {
+        } else {
             StarSystem system = new StarSystem(id, systemName, x, y, z, needsPermit);
-            loadSystem(system);
+            next.add(system);
             return system;
-        } else {    // System outside of Universe bubble set by INHABITED_RANGE_LY / 2
-            //double dist = lightYearsBetween(0, 0, 0, x, y, z);
-            //logger.warn("System outside of range:" + systemName + " [" + id + "] - " + dist + "LY");
-            return null;
         }
     }
 
-    public void loadStation(StarSystem system, Station station) {
-        system.add(station);
-        stationCounter.inc();
-        if(station.getHasOutfitting()) {
-            stationWithOutfitting.inc();
-            if(station.hasOutfittingData()) {
-                stationHasOutfittingData.inc();
+    /**
+     * Plans the fewest stops within the radius that together sell the ship and every module (or as much of
+     * the build as is sold within the radius), visiting the nearest remaining stop next.
+     */
+    public BuildTour planTour(StarSystem origin,
+                              Ship ship,
+                              ModuleMatcher standardMatcher,
+                              ModuleMatcher internalMatcher,
+                              ModuleMatcher hardpointMatcher,
+                              ModuleMatcher utilityMatcher,
+                              double radiusLY) {
+        NodeSummaries summaries = nodeSummaries;
+        SystemKdTree index = summaries.getTree();
+        int[][] requested = {
+                requestedModules(standardMatcher),
+                requestedModules(internalMatcher),
+                requestedModules(hardpointMatcher),
+                requestedModules(utilityMatcher)
+        };
+        int itemCount = ship != null ? 1 : 0;   // The ship is item 0, followed by the requested modules
+
+        for (int[] modules : requested) {
+            itemCount += modules.length;
+        }
+
+        TourPlanner planner = new TourPlanner(itemCount, TimeUnit.MILLISECONDS.toNanos(TOUR_TIME_BUDGET_MS));
+        List<Station> candidates = new ArrayList<>();
+        List<StarSystem> candidateSystems = new ArrayList<>();
+        List<long[]> candidateItems = new ArrayList<>();
+        double oX = origin.getX(), oY = origin.getY(), oZ = origin.getZ();
+        double radiusSquared = radiusLY * radiusLY;
+        DistanceOrderedTraversal traversal = index.traversal(oX, oY, oZ);
+        StopCondition outsideRadius = new RadiusStopCondition(radiusLY);
+        int leaf;
+
+        traversal.setFilter(summaries.filterFor(ship, standardMatcher, internalMatcher, hardpointMatcher, utilityMatcher));
+
+        while (!planner.pastDeadline() && (leaf = traversal.nextLeaf(outsideRadius)) != -1) {  // Nearest first, so a timeout keeps the nearer
+            for (int n = index.leafStart(leaf); n < index.leafEnd(leaf); n++) {
+                double distanceSquared = index.distanceSquared(n, oX, oY, oZ);
+
+                if (distanceSquared > radiusSquared) {
+                    continue;
+                }
+
+                StarSystem system = index.getSystem(n);
+
+                for (int st = index.stationStart(n); st < index.stationEnd(n); st++) {
+                    Station station = index.getStation(st);
+                    long[] items = planner.newItemSet();
+                    int item = 0;
+
+                    if (ship != null && station.hasShip(ship)) {
+                        TourPlanner.set(items, 0);
+                    }
+                    item += ship != null ? 1 : 0;
+                    item = setSoldModules(items, item, requested[0], station.getStandardSet());
+                    item = setSoldModules(items, item, requested[1], station.getInternalSet());
+                    item = setSoldModules(items, item, requested[2], station.getHardpointSet());
+                    setSoldModules(items, item, requested[3], station.getUtilitySet());
+
+                    if (itemsCount(items) > 0) {
+                        planner.add(items, Math.sqrt(distanceSquared));
+                        candidates.add(station);
+                        candidateSystems.add(system);
+                        candidateItems.add(items);
+                    }
+                }
             }
         }
-        if(station.getHasShipyard()) {
-            stationWithShipyard.inc();
-            if (station.hasShipyardData()) {
-                stationHasShipyardData.inc();
+
+        boolean complete = itemsCount(planner.coverable()) == itemCount;
+        List<Integer> remaining = new ArrayList<>();
+
+        for (int candidate : planner.plan()) {
+            remaining.add(candidate);
+        }
+
+        List<TourStop> stops = new ArrayList<>();
+        StarSystem at = origin;
+        double totalDistance = 0;
+
+        while (!remaining.isEmpty()) {  // Nearest remaining stop next
+            int nearest = 0;
+            for (int r = 1; r < remaining.size(); r++) {
+                if (at.lightYearsFrom(candidateSystems.get(remaining.get(r))) < at.lightYearsFrom(candidateSystems.get(remaining.get(nearest)))) {
+                    nearest = r;
+                }
             }
+            int candidate = remaining.remove(nearest);
+            StarSystem system = candidateSystems.get(candidate);
+            long[] items = candidateItems.get(candidate);
+            boolean hasShip = ship != null && (items[0] & 1L) != 0;
+            double leg = at.lightYearsFrom(system);
+
+            stops.add(new TourStop(system.getSystemName(), candidates.get(candidate), hasShip, itemsCount(items) - (hasShip ? 1 : 0), leg));
+            totalDistance += leg;
+            at = system;
         }
+
+        return new BuildTour(stops, complete, planner.timedOut(), totalDistance);
     }
 
-    public Station updateStationFromEDDB(StarSystem system,
+    /**
+     * Stations are added or replaced by copies in the builder, the published ones are left untouched
+     * @return The new or updated station, or null if nothing changed
+     */
+    public Station updateStationFromEDDB(UniverseSnapshot.Builder next,
+                                         StarSystem system,
                                          int stationId,
                                          String stationName,
                                          int distanceLs,
@@ -236,33 +627,27 @@ public class Universe {
 
         if (existingStation == null) {
             Station station = new Station(stationId, system.getId(), stationName, distanceLs, allegiance, padSize, type, shipyard, outfitting, ships, eddbModuleIds, DateTime.now());
-            loadStation(system, station);
+            next.addStation(next.edit(system.getId()), station);
             return station;
-        } else {
-            boolean hadShipyardBefore = existingStation.getHasShipyard();
-            boolean hadOutfittingBefore = existingStation.getHasOutfitting();
-            if (existingStation.update(stationName, distanceLs, allegiance, padSize, type, shipyard, outfitting, ships, eddbModuleIds)) {
-                stationUpdates.mark();
-
-                if(!hadShipyardBefore && existingStation.getHasShipyard()) { // Shipyard added
-                    stationWithShipyard.inc();
-                } else if(hadShipyardBefore && !existingStation.getHasShipyard()) { // Shipyard removed
-                    stationWithShipyard.dec();
-                }
+        }
 
-                if(!hadOutfittingBefore && existingStation.getHasOutfitting()) { // Outfitting added
-                    stationWithOutfitting.inc();
-                } else if(hadOutfittingBefore && !existingStation.getHasOutfitting()) { // Outfitting removed
-                    stationWithOutfitting.dec();
-                }
+        Station station = next.owns(existingStation) ? existingStation : new Station(existingStation);
 
-                return existingStation;
+        if (station.update(stationName, distanceLs, allegiance, padSize, type, shipyard, outfitting, ships, eddbModuleIds)) {
+            stationUpdates.mark();
+            if (station != existingStation) {
+                next.replaceStation(next.edit(system.getId()), existingStation, station);
             }
+            return station;
         }
         return null;
     }
 
-    public void updateStationFromEDDN(String systemName, String stationName, List<String> ships) throws UnknownShipException {
+    /**
+     * Runs under the same lock as publishing, so the station and its index entries change together and a copy
+     * of it in an update under way is given the new ships when published
+     */
+    public synchronized void updateStationFromEDDN(String systemName, String stationName, List<String> ships) throws UnknownShipException {
         StarSystem system = getSystem(systemName);
         if (system != null) {
             Station existingStation = system.getStation(stationName);
@@ -273,8 +658,14 @@ public class Universe {
             } else {
                 boolean hadShipyardBefore = existingStation.getHasShipyard();
                 boolean hadShipyardDataBefore = existingStation.hasShipyardData();
+                EnumSet<Ship> oldShips = existingStation.getShipSet();
                 logger.debug("Updating Shipyard for Station: " + systemName + " [" + system.getId() + "] - " + stationName);
                 existingStation.setShips(ships);
+                updateShipIndex(existingStation, oldShips);
+                summarize(system, existingStation);
+                if (updateLock.isLocked()) {    // Else copies are made after this, beginUpdate waits for the lock
+                    shipyardsFromEDDN.add(existingStation);
+                }
                 stationUpdates.mark();
 
                 if (!hadShipyardDataBefore) {
@@ -292,7 +683,10 @@ public class Universe {
         }
     }
 
-    public void updateStationFromEDDN(String systemName, String stationName, ModuleSet s, ModuleSet i, ModuleSet h, ModuleSet u) {
+    /**
+     * Runs under the same lock as publishing, like the shipyard update
+     */
+    public synchronized void updateStationFromEDDN(String systemName, String stationName, ModuleSet s, ModuleSet i, ModuleSet h, ModuleSet u) {
         StarSystem system = getSystem(systemName);
         if (system != null) {
             Station existingStation = system.getStation(stationName);
@@ -304,7 +698,13 @@ public class Universe {
                 logger.debug("Updating Outfitting for Station: " + systemName + " [" + system.getId() +  "] - "  + stationName);
                 boolean hadOutfittingBefore = existingStation.getHasOutfitting();
                 boolean hadOutfittingDataBefore = existingStation.hasOutfittingData();
+                ModuleSet oldS = existingStation.getStandardSet(), oldI = existingStation.getInternalSet(), oldH = existingStation.getHardpointSet(), oldU = existingStation.getUtilitySet();
                 existingStation.setModules(s, i, h, u);
+                updateModuleIndex(existingStation, oldS, oldI, oldH, oldU);
+                summarize(system, existingStation);
+                if (updateLock.isLocked()) {
+                    outfittingsFromEDDN.add(existingStation);
+                }
                 stationUpdates.mark();
 
                 if(!hadOutfittingDataBefore) {
@@ -323,47 +723,242 @@ public class Universe {
 
     /* public static methods */
 
-    public static boolean areCoordinatesInRange(double x, double y, double z) {
-        return isSectorInRange((int) Math.round(x / SECTOR_SIZE_LY), (int) Math.round(y / SECTOR_SIZE_LY), (int) Math.round(z / SECTOR_SIZE_LY));
+    public static double lightYearsBetween(double oX, double oY, double oZ, double eX, double eY, double eZ) {
+        double dx = oX - eX;
+        double dy = oY - eY;
+        double dz = oZ - eZ;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /* private methods */
+
+    private void indexStation(Station station) {
+        synchronized (stations) {
+            stations.add(station);  // At its ordinal, assigned in order before the build
+        }
+        moduleIndex.add(station.getOrdinal(), station.getStandardSet(), station.getInternalSet(), station.getHardpointSet(), station.getUtilitySet());
+        shipIndex.add(station.getOrdinal(), station.getShipSet());
+        stationNameIndex.add(station.getOrdinal(), station.getStationName());
+        stationCounter.inc();
+        if(station.getHasOutfitting()) {
+            stationWithOutfitting.inc();
+            if(station.hasOutfittingData()) {
+                stationHasOutfittingData.inc();
+            }
+        }
+        if(station.getHasShipyard()) {
+            stationWithShipyard.inc();
+            if (station.hasShipyardData()) {
+                stationHasShipyardData.inc();
+            }
+        }
+    }
+
+    /**
+     * Indexes a copy in place of the station with its ordinal, which EDDN may have updated since it was copied
+     */
+    private void reindexStation(Station station) {
+        Station replaced;
+        synchronized (stations) {
+            replaced = stations.set(station.getOrdinal(), station);
+        }
+        if (shipyardsFromEDDN.contains(replaced)) {
+            station.setShipyardFrom(replaced);
+        }
+        if (outfittingsFromEDDN.contains(replaced)) {
+            station.setOutfittingFrom(replaced);
+        }
+        if (!replaced.getStationName().equals(station.getStationName())) {
+            stationNameIndex.rename(station.getOrdinal(), station.getStationName());
+        }
+        updateShipIndex(station, replaced.getShipSet());
+        updateModuleIndex(station, replaced.getStandardSet(), replaced.getInternalSet(), replaced.getHardpointSet(), replaced.getUtilitySet());
+
+        if(!replaced.getHasShipyard() && station.getHasShipyard()) { // Shipyard added
+            stationWithShipyard.inc();
+        } else if(replaced.getHasShipyard() && !station.getHasShipyard()) { // Shipyard removed
+            stationWithShipyard.dec();
+        }
+
+        if(!replaced.getHasOutfitting() && station.getHasOutfitting()) { // Outfitting added
+            stationWithOutfitting.inc();
+        } else if(replaced.getHasOutfitting() && !station.getHasOutfitting()) { // Outfitting removed
+            stationWithOutfitting.dec();
+        }
     }
 
-    public static boolean isSectorInRange(int x, int y, int z) {
-        return x >= SECTOR_MIN && x <= SECTOR_MAX && y >= SECTOR_MIN && y <= SECTOR_MAX && z >= SECTOR_MIN && z <= SECTOR_MAX;
+    private void updateShipIndex(Station station, EnumSet<Ship> oldShips) {
+        shipIndex.remove(station.getOrdinal(), oldShips);
+        shipIndex.add(station.getOrdinal(), station.getShipSet());
     }
 
-    public static int coordinateToSector(double dim) {
-        return (int) (Math.round(dim) / SECTOR_SIZE_LY) + SECTOR_MIN;
+    private void updateModuleIndex(Station station, ModuleSet oldS, ModuleSet oldI, ModuleSet oldH, ModuleSet oldU) {
+        moduleIndex.remove(station.getOrdinal(), oldS, oldI, oldH, oldU);
+        moduleIndex.add(station.getOrdinal(), station.getStandardSet(), station.getInternalSet(), station.getHardpointSet(), station.getUtilitySet());
     }
 
-    public static double lightYearsBetween(double oX, double oY, double oZ, double eX, double eY, double eZ) {
-        return Math.sqrt( Math.pow(oX - eX, 2) + Math.pow(oY - eY, 2) + Math.pow(oZ - eZ, 2) );
+    /**
+     * Systems not in the published spatial index yet are summarized when their snapshot is published
+     */
+    private synchronized void summarize(StarSystem system, Station station) {
+        nodeSummaries.include(system, station);
     }
 
-    /* private methods */
+    private static int[] requestedModules(ModuleMatcher matcher) {
+        if (matcher == null) {
+            return new int[0];
+        }
+        BitVector set = matcher.getSet();
+        int[] modules = new int[set.cardinality()];
+        int m = 0;
+        for (int index = set.indexOfFromTo(0, set.size() - 1, true); index != -1 && m < modules.length; index = set.indexOfFromTo(index + 1, set.size() - 1, true)) {
+            modules[m++] = index;
+        }
+        return modules;
+    }
 
-    private List<StarSystem> getSectorFor(StarSystem system) {
-        return getSector(system.getSectorX(), system.getSectorY(), system.getSectorZ());
+    /**
+     * Sets an item for each requested module the station sells
+     * @return The item following the requested modules
+     */
+    private static int setSoldModules(long[] items, int item, int[] requested, ModuleSet sold) {
+        for (int module : requested) {
+            if (sold != null && sold.has(module)) {
+                TourPlanner.set(items, item);
+            }
+            item++;
+        }
+        return item;
     }
 
-    private List<StarSystem> getSector(int x, int y, int z) {
-        Object sectorList = sectors.getQuick(x, y, z);
-        if(sectorList == null) {    // Sector is empty
-            return null;
-        } else {
-            return  (ArrayList<StarSystem>) sectorList;
+    private static int itemsCount(long[] items) {
+        int count = 0;
+        for (long word : items) {
+            count += Long.bitCount(word);
         }
+        return count;
+    }
+
+    private static boolean isSet(BitVector bits, int index) {
+        return index < bits.size() && bits.getQuick(index);
     }
 
-    private void addSystemToSector(StarSystem system) {
-        List<StarSystem> sectorList;
+    /**
+     * A single build search. Matches stations against the build using the ship and module postings, holds the best
+     * MAX_RESULTS build candidates (worst at the root of the heap) and ends the search when the remaining leaves
+     * are out of range or cannot improve on the candidates already found. Nothing is allocated per station.
+     */
+    private class BuildSearch extends RadiusStopCondition {
+
+        private final Ship ship;
+        private final ModuleMatcher standardMatcher;
+        private final ModuleMatcher internalMatcher;
+        private final ModuleMatcher hardpointMatcher;
+        private final ModuleMatcher utilityMatcher;
+        private final double moduleCount;
+        private final BitVector withShip;
+        private final BitVector withAnyModule;
+        private final BitVector withAllModules;
+        private final CandidateHeap candidates;
+        private final double maxScore;
+        private double buildFoundDistanceSquared;
+        private boolean done;
+
+        private BuildSearch(Ship ship,
+                            ModuleMatcher standardMatcher,
+                            ModuleMatcher internalMatcher,
+                            ModuleMatcher hardpointMatcher,
+                            ModuleMatcher utilityMatcher) {
+            super(MAX_SEARCH_RADIUS_LY);
+            this.ship = ship;
+            this.standardMatcher = standardMatcher;
+            this.internalMatcher = internalMatcher;
+            this.hardpointMatcher = hardpointMatcher;
+            this.utilityMatcher = utilityMatcher;
+            this.moduleCount = (standardMatcher != null ? standardMatcher.count() : 0)
+                    + (internalMatcher != null ? internalMatcher.count() : 0)
+                    + (hardpointMatcher != null ? hardpointMatcher.count() : 0)
+                    + (utilityMatcher != null ? utilityMatcher.count() : 0);
+            this.withShip = ship != null ? shipIndex.stationsWith(ship) : null;
+
+            if (moduleCount > 0) {  // Only stations in the module postings need to be matched
+                withAnyModule = moduleIndex.stationsWithAny(standardMatcher, internalMatcher, hardpointMatcher, utilityMatcher);
+                withAllModules = moduleIndex.stationsWithAll(standardMatcher, internalMatcher, hardpointMatcher, utilityMatcher);
+            } else {
+                withAnyModule = null;
+                withAllModules = null;
+            }
+            this.candidates = new CandidateHeap(MAX_RESULTS);
+            this.maxScore = (moduleCount > 0 ? 1 : 0) + (ship != null ? 1 : 0);
+            this.buildFoundDistanceSquared = -1;
+        }
 
-        Object sectorObj = sectors.getQuick(system.getSectorX(), system.getSectorY(), system.getSectorZ());
-        if(sectorObj == null) {    // Sector is empty
-             sectorList =  new ArrayList<>();
-            sectors.setQuick(system.getSectorX(), system.getSectorY(), system.getSectorZ(), sectorList);
-        } else {
-            sectorList = (ArrayList<StarSystem>) sectorObj;
+        /**
+         * @param slot Slot of the station's system in the spatial index
+         * @param position Position of the station in the spatial index
+         */
+        private void consider(SystemKdTree index, int slot, int position, double distanceSquared) {
+            int ordinal = index.stationOrdinal(position);
+            int modulesFound = 0;
+            double score = 0;
+            boolean hasShip = ship != null && isSet(withShip, ordinal);
+            boolean hasAnyModule = moduleCount > 0 && isSet(withAnyModule, ordinal);
+
+            if (!hasShip && !hasAnyModule) {    // Nothing the build needs is sold here
+                return;
+            }
+
+            if (hasAnyModule) {
+                if (isSet(withAllModules, ordinal)) {
+                    modulesFound = (int) moduleCount;
+                } else {    // Only partial matches need the station itself
+                    Station station = index.getStation(position);
+                    if (standardMatcher != null) {
+                        modulesFound += standardMatcher.match(station.getStandardSet());
+                    }
+                    if (internalMatcher != null) {
+                        modulesFound += internalMatcher.match(station.getInternalSet());
+                    }
+                    if (hardpointMatcher != null) {
+                        modulesFound += hardpointMatcher.match(station.getHardpointSet());
+                    }
+                    if (utilityMatcher != null) {
+                        modulesFound += utilityMatcher.match(station.getUtilitySet());
+                    }
+                }
+                score = modulesFound / moduleCount;
+            }
+
+            if (hasShip) {
+                score += 1;
+            }
+
+            if (score > 0) {
+                candidates.offer(position, slot, hasShip, modulesFound, score, distanceSquared);
+                if (score == maxScore && (buildFoundDistanceSquared < 0 || distanceSquared < buildFoundDistanceSquared)) {
+                    buildFoundDistanceSquared = distanceSquared;
+                }
+            }
+        }
+
+        private BuildStationCandidate[] results(SystemKdTree index) {
+            return candidates.toCandidates(index);
+        }
+
+        @Override
+        public boolean shouldStop(double nextMinDistanceLY) {
+            if (super.shouldStop(nextMinDistanceLY)) {
+                return true;
+            }
+            if (buildFoundDistanceSquared >= 0 && nextMinDistanceLY > Math.sqrt(buildFoundDistanceSquared) + FULL_BUILD_SLACK_LY) {
+                // All components and Ship found, alternatives further out than this are not worth the search
+                return true;
+            }
+            if (candidates.isFull()) {
+                // Nothing in the remaining leaves can beat the k-th best result
+                return candidates.worstScore() == maxScore && candidates.worstDistanceSquared() <= nextMinDistanceLY * nextMinDistanceLY;
+            }
+            return false;
         }
-        sectorList.add(system);
     }
 }
@@ -0,0 +1,257 @@
+package io.coriolis.api.core;
+
+import cern.colt.list.ObjectArrayList;
+import cern.colt.map.OpenIntObjectHashMap;
+import io.coriolis.api.core.spatial.SystemKdTree;
+import io.coriolis.api.entities.StarSystem;
+import io.coriolis.api.entities.Station;
+
+import java.util.*;
+
+/**
+ * Systems, their name index and spatial index as of one point in time. A snapshot is never modified once
+ * built; refreshes copy it into a {@link Builder}, apply their changes there and publish the result.
+ */
+public class UniverseSnapshot {
+
+    private final SystemNameHash systemsByName;
+    private final OpenIntObjectHashMap systemsIdMap;
+    private final SystemNames systemNames;
+    private final NameTrigramIndex systemNamesIndex;
+    private final NameCompletions systemNameCompletions;
+    private final SystemKdTree spatialIndex;
+
+    private UniverseSnapshot(SystemNameHash systemsByName,
+                             OpenIntObjectHashMap systemsIdMap,
+                             SystemNames systemNames,
+                             NameTrigramIndex systemNamesIndex,
+                             NameCompletions systemNameCompletions,
+                             SystemKdTree spatialIndex) {
+        this.systemsByName = systemsByName;
+        this.systemsIdMap = systemsIdMap;
+        this.systemNames = systemNames;
+        this.systemNamesIndex = systemNamesIndex;
+        this.systemNameCompletions = systemNameCompletions;
+        this.spatialIndex = spatialIndex;
+    }
+
+    /**
+     * @param leafSize Most systems a spatial index leaf may hold, for this and every later snapshot
+     */
+    public static UniverseSnapshot empty(int leafSize) {
+        return new UniverseSnapshot(new SystemNameHash(new ArrayList<StarSystem>()),
+                new OpenIntObjectHashMap(),
+                SystemNames.compact(new TreeSet<String>()),
+                new NameTrigramIndex(new ArrayList<String>()),
+                new NameCompletions(new String[0], new int[0]),
+                new SystemKdTree(new ArrayList<StarSystem>(), leafSize));
+    }
+
+    public StarSystem getSystem(String systemName) {
+        return systemsByName.get(systemName);
+    }
+
+    /**
+     * @param lowerCasedName A name from one of the name indexes, which hold them as {@link String#toLowerCase()} returns them
+     */
+    public StarSystem getSystemByLowerCasedName(String lowerCasedName) {
+        return systemsByName.getLowerCased(lowerCasedName);
+    }
+
+    public StarSystem getSystem(int id) {
+        return (StarSystem) systemsIdMap.get(id);
+    }
+
+    public int systemCount() {
+        return systemsIdMap.size();
+    }
+
+    public SystemNames getSystemNames() {
+        return systemNames;
+    }
+
+    public NameTrigramIndex getSystemNamesIndex() {
+        return systemNamesIndex;
+    }
+
+    public NameCompletions getSystemNameCompletions() {
+        return systemNameCompletions;
+    }
+
+    public SystemKdTree getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Copies the system id map of a snapshot, but shares its systems and stations until they are edited. The name
+     * and spatial indexes are only rebuilt if systems were added, renamed or edited. Station ordinals and the
+     * station indexes are left to {@link Universe#publish(Builder)}, from the stations added and replaced here.
+     */
+    public static class Builder {
+
+        private final UniverseSnapshot base;
+        private final OpenIntObjectHashMap systemsIdMap;
+        private final Set<Integer> copied;
+        private final Set<Station> ownStations;     // Added or copied by this builder, safe to modify
+        private final List<Station> addedStations;
+        private final List<Station> replacedStations;
+        private final Set<String> addedNames;
+        private boolean namesRemoved;
+        private long namesBuildNanos = -1;
+        private long spatialIndexBuildNanos = -1;
+
+        private Builder(UniverseSnapshot base) {
+            this.base = base;
+            this.systemsIdMap = (OpenIntObjectHashMap) base.systemsIdMap.clone();
+            this.copied = new HashSet<>();
+            this.ownStations = new HashSet<>();
+            this.addedStations = new ArrayList<>();
+            this.replacedStations = new ArrayList<>();
+            this.addedNames = new HashSet<>();
+        }
+
+        public StarSystem getSystem(int id) {
+            return (StarSystem) systemsIdMap.get(id);
+        }
+
+        public void add(StarSystem system) {
+            systemsIdMap.put(system.getId(), system);
+            copied.add(system.getId());
+            addedNames.add(system.getSystemName().toLowerCase());
+        }
+
+        /**
+         * @return A copy of the system private to this builder, safe to modify while readers use the published one
+         */
+        public StarSystem edit(int id) {
+            StarSystem system = (StarSystem) systemsIdMap.get(id);
+
+            if (system != null && copied.add(id)) {
+                system = new StarSystem(system);
+                systemsIdMap.put(id, system);
+            }
+            return system;
+        }
+
+        /**
+         * Renames a system previously returned by {@link #edit(int)}
+         */
+        public void rename(StarSystem system, String systemName) {
+            system.setSystemName(systemName);
+            addedNames.add(systemName.toLowerCase());
+            namesRemoved = true;
+        }
+
+        /**
+         * Adds a new station, without an ordinal yet, to a system previously returned by {@link #edit(int)}
+         */
+        public void addStation(StarSystem system, Station station) {
+            system.add(station);
+            ownStations.add(station);
+            addedStations.add(station);
+        }
+
+        /**
+         * @return true if the station was added or copied by this builder, so it can be modified in place
+         */
+        public boolean owns(Station station) {
+            return ownStations.contains(station);
+        }
+
+        /**
+         * Puts an updated copy of a published station in its place, in a system previously returned by {@link #edit(int)}
+         */
+        public void replaceStation(StarSystem system, Station published, Station copy) {
+            system.getStations().remove(published);
+            system.add(copy);
+            ownStations.add(copy);
+            replacedStations.add(copy);
+        }
+
+        /**
+         * @return Stations added to the snapshot, in the order they were added
+         */
+        public List<Station> getAddedStations() {
+            return addedStations;
+        }
+
+        /**
+         * @return Copies replacing published stations, with the ordinals of the stations they replace
+         */
+        public List<Station> getReplacedStations() {
+            return replacedStations;
+        }
+
+        public UniverseSnapshot build() {
+            if (copied.isEmpty()) {
+                return base;
+            }
+            List<StarSystem> systems = systems();
+            SystemNameHash systemsByName = new SystemNameHash(systems);    // Refers to the edited copies
+            SystemNames names = base.systemNames;
+            NameTrigramIndex namesIndex = base.systemNamesIndex;
+            String[] sortedNameArray = base.systemNameCompletions.getNames();
+
+            if (!addedNames.isEmpty()) {
+                long started = System.nanoTime();
+                // One sorted pass: MDAG.addStrings minimizes each name's path as soon as the next one diverges
+                SortedSet<String> sortedNames = new TreeSet<>();
+                for (StarSystem system : systems) {
+                    sortedNames.add(system.getSystemName().toLowerCase());
+                }
+                // Only renames drop names, which an MDAG cannot do without a rebuild; new systems go to the delta
+                names = namesRemoved ? SystemNames.compact(sortedNames) : names.withAdded(addedNames, sortedNames);
+                namesIndex = new NameTrigramIndex(sortedNames);
+                sortedNameArray = sortedNames.toArray(new String[sortedNames.size()]);
+                namesBuildNanos = System.nanoTime() - started;
+            }
+            NameCompletions completions = new NameCompletions(sortedNameArray, completionWeights(systemsByName, sortedNameArray));
+
+            long started = System.nanoTime();
+            SystemKdTree spatialIndex = new SystemKdTree(systems, base.spatialIndex.leafSize());
+            spatialIndexBuildNanos = System.nanoTime() - started;
+
+            return new UniverseSnapshot(systemsByName, systemsIdMap, names, namesIndex, completions, spatialIndex);
+        }
+
+        /**
+         * @return How long {@link #build()} took to rebuild the name indexes, or -1 if they were reused
+         */
+        public long getNamesBuildNanos() {
+            return namesBuildNanos;
+        }
+
+        /**
+         * @return How long {@link #build()} took to build the spatial index, or -1 if it was reused
+         */
+        public long getSpatialIndexBuildNanos() {
+            return spatialIndexBuildNanos;
+        }
+
+        /**
+         * Populated systems rank above empty ones, busier ones first
+         */
+        private int[] completionWeights(SystemNameHash systemsByName, String[] sortedNames) {
+            int[] weights = new int[sortedNames.length];
+
+            for (int i = 0; i < sortedNames.length; i++) {
+                weights[i] = systemsByName.getLowerCased(sortedNames[i]).getStations().size();
+            }
+            return weights;
+        }
+
+        private List<StarSystem> systems() {
+            ObjectArrayList values = systemsIdMap.values();
+            List<StarSystem> systems = new ArrayList<>(values.size());
+
+            for (int i = 0; i < values.size(); i++) {
+                systems.add((StarSystem) values.getQuick(i));
+            }
+            return systems;
+        }
+    }
+}
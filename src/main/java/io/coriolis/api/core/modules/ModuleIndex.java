@@ -0,0 +1,126 @@
+package io.coriolis.api.core.modules;
+
+import cern.colt.bitvector.BitVector;
+
+/**
+ * Inverted index of modules to the stations that sell them. Each module index in {@link Modules}
+ * has a posting bitmap per category, where bit N is set if the station with ordinal N sells it.
+ */
+public class ModuleIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final BitVector[] standard;
+    private final BitVector[] internal;
+    private final BitVector[] hardpoint;
+    private final BitVector[] utility;
+    private int capacity;
+
+    public ModuleIndex(Modules modules) {
+        capacity = INITIAL_CAPACITY;
+        standard = createPostings(modules.getStandardCount());
+        internal = createPostings(modules.getInternalCount());
+        hardpoint = createPostings(modules.getHardpointCount());
+        utility = createPostings(modules.getUtilityCount());
+    }
+
+    public synchronized void add(int stationOrdinal, ModuleSet s, ModuleSet i, ModuleSet h, ModuleSet u) {
+        ensureCapacity(stationOrdinal + 1);
+        put(standard, stationOrdinal, s, true);
+        put(internal, stationOrdinal, i, true);
+        put(hardpoint, stationOrdinal, h, true);
+        put(utility, stationOrdinal, u, true);
+    }
+
+    public synchronized void remove(int stationOrdinal, ModuleSet s, ModuleSet i, ModuleSet h, ModuleSet u) {
+        if (stationOrdinal < capacity) {
+            put(standard, stationOrdinal, s, false);
+            put(internal, stationOrdinal, i, false);
+            put(hardpoint, stationOrdinal, h, false);
+            put(utility, stationOrdinal, u, false);
+        }
+    }
+
+    /**
+     * @return Bitmap of the ordinals of stations selling at least one of the matchers' modules
+     */
+    public synchronized BitVector stationsWithAny(ModuleMatcher s, ModuleMatcher i, ModuleMatcher h, ModuleMatcher u) {
+        BitVector result = new BitVector(capacity);
+        or(result, standard, s);
+        or(result, internal, i);
+        or(result, hardpoint, h);
+        or(result, utility, u);
+        return result;
+    }
+
+    /**
+     * @return Bitmap of the ordinals of stations selling every one of the matchers' modules
+     */
+    public synchronized BitVector stationsWithAll(ModuleMatcher s, ModuleMatcher i, ModuleMatcher h, ModuleMatcher u) {
+        BitVector result = new BitVector(capacity);
+        result.not();
+        and(result, standard, s);
+        and(result, internal, i);
+        and(result, hardpoint, h);
+        and(result, utility, u);
+        return result;
+    }
+
+    private BitVector[] createPostings(int moduleCount) {
+        BitVector[] postings = new BitVector[moduleCount];
+        for (int m = 0; m < moduleCount; m++) {
+            postings[m] = new BitVector(capacity);
+        }
+        return postings;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > capacity) {
+            capacity = Math.max(size, capacity * 2);
+            grow(standard);
+            grow(internal);
+            grow(hardpoint);
+            grow(utility);
+        }
+    }
+
+    private void grow(BitVector[] postings) {
+        for (BitVector posting : postings) {
+            posting.setSize(capacity);
+        }
+    }
+
+    private static void put(BitVector[] postings, int stationOrdinal, ModuleSet set, boolean value) {
+        if (set == null) {
+            return;
+        }
+        BitVector modules = set.getSet();
+        for (int m = nextModule(modules, 0); m != -1; m = nextModule(modules, m + 1)) {
+            postings[m].putQuick(stationOrdinal, value);
+        }
+    }
+
+    private static void or(BitVector result, BitVector[] postings, ModuleMatcher matcher) {
+        if (matcher == null) {
+            return;
+        }
+        BitVector modules = matcher.getSet();
+        for (int m = nextModule(modules, 0); m != -1; m = nextModule(modules, m + 1)) {
+            result.or(postings[m]);
+        }
+    }
+
+    private static void and(BitVector result, BitVector[] postings, ModuleMatcher matcher) {
+        if (matcher == null) {
+            return;
+        }
+        BitVector modules = matcher.getSet();
+        for (int m = nextModule(modules, 0); m != -1; m = nextModule(modules, m + 1)) {
+            result.and(postings[m]);
+        }
+    }
+
+    private static int nextModule(BitVector modules, int from) {
+        return from < modules.size() ? modules.indexOfFromTo(from, modules.size() - 1, true) : -1;
+    }
+}
@@ -23,6 +23,10 @@ public class ModuleMatcher {
         return count;
     }
 
+    public BitVector getSet() {
+        return original;
+    }
+
     public int match(ModuleSet ms) {
         if (ms == null || ms.getSet() == null) {
             return 0;
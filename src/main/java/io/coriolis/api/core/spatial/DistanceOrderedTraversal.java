@@ -0,0 +1,109 @@
+package io.coriolis.api.core.spatial;
+
+import java.util.Arrays;
+
+/**
+ * Best-first traversal of the leaves of a {@link SystemKdTree}. Each leaf is returned exactly once,
+ * ordered by the exact minimum distance of its bounding box from the origin point. A binary min-heap
+ * of nodes keyed on squared minimum distance drives the traversal.
+ */
+public class DistanceOrderedTraversal {
+
+    private final SystemKdTree tree;
+    private final double x;
+    private final double y;
+    private final double z;
+    private NodeFilter filter;
+    private int[] heapNodes;
+    private double[] heapKeys;
+    private int heapSize;
+
+    public DistanceOrderedTraversal(SystemKdTree tree, double x, double y, double z) {
+        this.tree = tree;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        heapNodes = new int[32];
+        heapKeys = new double[32];
+
+        if (tree.size() > 0) {
+            push(SystemKdTree.ROOT, tree.minDistanceSquared(SystemKdTree.ROOT, x, y, z));
+        }
+    }
+
+    /**
+     * @param filter Nodes it rejects are skipped along with everything beneath them
+     */
+    public void setFilter(NodeFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @param stopCondition Consulted with the lower distance bound before each node is expanded or returned, so
+     * no leaf entirely beyond the point where it stops is ever returned
+     * @return The closest leaf node not yet visited, or -1 when exhausted or the condition is met
+     */
+    public int nextLeaf(StopCondition stopCondition) {
+        while (heapSize > 0) {
+            if (stopCondition.shouldStop(Math.sqrt(heapKeys[0]))) {
+                return -1;
+            }
+            int node = pop();
+            if (filter != null && !filter.accept(node)) {
+                continue;
+            }
+            if (tree.isLeaf(node)) {
+                return node;
+            }
+            int left = tree.leftChild(node);
+            int right = tree.rightChild(node);
+            push(left, tree.minDistanceSquared(left, x, y, z));
+            push(right, tree.minDistanceSquared(right, x, y, z));
+        }
+        return -1;
+    }
+
+    private void push(int node, double key) {
+        if (heapSize == heapNodes.length) {
+            heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapNodes[i] = heapNodes[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heapNodes[i] = node;
+        heapKeys[i] = key;
+    }
+
+    private int pop() {
+        int top = heapNodes[0];
+        int lastNode = heapNodes[--heapSize];
+        double lastKey = heapKeys[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (heapKeys[child] >= lastKey) {
+                break;
+            }
+            heapNodes[i] = heapNodes[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapNodes[i] = lastNode;
+        heapKeys[i] = lastKey;
+        return top;
+    }
+}
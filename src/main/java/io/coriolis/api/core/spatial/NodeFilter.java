@@ -0,0 +1,12 @@
+package io.coriolis.api.core.spatial;
+
+/**
+ * Lets a distance ordered traversal prune whole subtrees of a {@link SystemKdTree}
+ */
+public interface NodeFilter {
+
+    /**
+     * @return false if no system beneath the node can be of interest
+     */
+    boolean accept(int node);
+}
@@ -0,0 +1,41 @@
+package io.coriolis.api.core.spatial;
+
+/**
+ * Running totals of the work done by spatial index queries
+ */
+public class QueryStats {
+
+    private long queries;
+    private long leavesVisited;
+    private long systemsScanned;
+    private long stationsScanned;   // Station positions beneath the leaves visited
+
+    public void query() {
+        queries++;
+    }
+
+    public void visited(int leafSystems, int leafStations) {
+        leavesVisited++;
+        systemsScanned += leafSystems;
+        stationsScanned += leafStations;
+    }
+
+    public void add(QueryStats other) {
+        queries += other.queries;
+        leavesVisited += other.leavesVisited;
+        systemsScanned += other.systemsScanned;
+        stationsScanned += other.stationsScanned;
+    }
+
+    public double leavesPerQuery() {
+        return queries > 0 ? (double) leavesVisited / queries : 0;
+    }
+
+    public double systemsPerQuery() {
+        return queries > 0 ? (double) systemsScanned / queries : 0;
+    }
+
+    public double stationsPerQuery() {
+        return queries > 0 ? (double) stationsScanned / queries : 0;
+    }
+}
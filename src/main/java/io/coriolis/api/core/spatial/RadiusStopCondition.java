@@ -0,0 +1,18 @@
+package io.coriolis.api.core.spatial;
+
+/**
+ * Stops a traversal once everything left to visit is outside of the search radius
+ */
+public class RadiusStopCondition implements StopCondition {
+
+    private final double radiusLY;
+
+    public RadiusStopCondition(double radiusLY) {
+        this.radiusLY = radiusLY;
+    }
+
+    @Override
+    public boolean shouldStop(double nextMinDistanceLY) {
+        return nextMinDistanceLY > radiusLY;
+    }
+}
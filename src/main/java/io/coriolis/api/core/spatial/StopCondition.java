@@ -0,0 +1,14 @@
+package io.coriolis.api.core.spatial;
+
+/**
+ * Decides when a distance ordered traversal can end. Implementations usually hold the query's
+ * current top-k results and compare the worst of them against the lower distance bound.
+ */
+public interface StopCondition {
+
+    /**
+     * @param nextMinDistanceLY Lower bound on the distance of every system not yet visited
+     * @return true if none of the remaining systems can change the result
+     */
+    boolean shouldStop(double nextMinDistanceLY);
+}
@@ -0,0 +1,356 @@
+package io.coriolis.api.core.spatial;
+
+import io.coriolis.api.entities.StarSystem;
+import io.coriolis.api.entities.Station;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bulk-built k-d tree over star system coordinates. Systems are sorted in place while building so
+ * every node covers a contiguous range of the systems array, leaves hold at most leafSize systems.
+ * Median splits make cells adapt to density: leaves near Sol span a few light years, leaves out in
+ * the black span hundreds, and each refresh builds a new tree so they follow the data as it grows.
+ *
+ * Coordinates are copied into primitive columns in the same (leaf by leaf) order, so a system's slot
+ * in the tree is a dense ordinal and distance filtering never has to touch the StarSystem objects.
+ * Stations are laid out the same way, each system's stations contiguous and in slot order, so scans
+ * of neighbouring systems stream through the station columns instead of iterating station sets.
+ */
+public class SystemKdTree {
+
+    public static final int DEFAULT_LEAF_SIZE = 16;
+    public static final int ROOT = 0;
+
+    private static final Comparator<StarSystem> X_AXIS = new Comparator<StarSystem>() {
+        @Override
+        public int compare(StarSystem a, StarSystem b) {
+            return Double.compare(a.getX(), b.getX());
+        }
+    };
+
+    private static final Comparator<StarSystem> Y_AXIS = new Comparator<StarSystem>() {
+        @Override
+        public int compare(StarSystem a, StarSystem b) {
+            return Double.compare(a.getY(), b.getY());
+        }
+    };
+
+    private static final Comparator<StarSystem> Z_AXIS = new Comparator<StarSystem>() {
+        @Override
+        public int compare(StarSystem a, StarSystem b) {
+            return Double.compare(a.getZ(), b.getZ());
+        }
+    };
+
+    private final StarSystem[] systems;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final int[] stationStart;   // Stations of slot i are stationStart[i] to stationStart[i + 1] - 1
+    private final Station[] stations;
+    private final int[] stationOrdinals;
+    private final int[] start;
+    private final int[] end;
+    private final int[] left;
+    private final int[] right;
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] minZ;
+    private final double[] maxX;
+    private final double[] maxY;
+    private final double[] maxZ;
+    private final int leafSize;
+    private int nodeCount;
+
+    public SystemKdTree(Collection<StarSystem> systemCollection) {
+        this(systemCollection, DEFAULT_LEAF_SIZE);
+    }
+
+    /**
+     * @param leafSize Most systems a leaf may hold before it is split
+     */
+    public SystemKdTree(Collection<StarSystem> systemCollection, int leafSize) {
+        if (leafSize < 2) {
+            throw new IllegalArgumentException("Leaf size must be at least 2: " + leafSize);
+        }
+        this.leafSize = leafSize;
+        systems = systemCollection.toArray(new StarSystem[systemCollection.size()]);
+        // Median splits keep leaves at least leafSize / 2 full, so this bounds the node count
+        int capacity = 4 * systems.length / leafSize + 2;
+        start = new int[capacity];
+        end = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        minX = new double[capacity];
+        minY = new double[capacity];
+        minZ = new double[capacity];
+        maxX = new double[capacity];
+        maxY = new double[capacity];
+        maxZ = new double[capacity];
+
+        if (systems.length > 0) {
+            build(0, systems.length);
+        }
+
+        x = new double[systems.length];
+        y = new double[systems.length];
+        z = new double[systems.length];
+
+        for (int i = 0; i < systems.length; i++) {
+            x[i] = systems[i].getX();
+            y[i] = systems[i].getY();
+            z[i] = systems[i].getZ();
+        }
+
+        List<Station> stationList = new ArrayList<>();
+        stationStart = new int[systems.length + 1];
+
+        for (int i = 0; i < systems.length; i++) {
+            stationStart[i] = stationList.size();
+            stationList.addAll(systems[i].getStations());
+        }
+        stationStart[systems.length] = stationList.size();
+        stations = stationList.toArray(new Station[stationList.size()]);
+        stationOrdinals = new int[stations.length];
+
+        for (int s = 0; s < stations.length; s++) {
+            stationOrdinals[s] = stations[s].getOrdinal();
+        }
+    }
+
+    public int size() {
+        return systems.length;
+    }
+
+    public int leafSize() {
+        return leafSize;
+    }
+
+    /**
+     * Nodes are numbered 0 to nodeCount() - 1 in pre-order, so a child always has a higher number than its parent
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public boolean isLeaf(int node) {
+        return left[node] == -1;
+    }
+
+    public int leftChild(int node) {
+        return left[node];
+    }
+
+    public int rightChild(int node) {
+        return right[node];
+    }
+
+    public int leafStart(int node) {
+        return start[node];
+    }
+
+    public int leafEnd(int node) {
+        return end[node];
+    }
+
+    public StarSystem getSystem(int slot) {
+        return systems[slot];
+    }
+
+    /**
+     * @return Position of the first station of the system in the slot
+     */
+    public int stationStart(int slot) {
+        return stationStart[slot];
+    }
+
+    public int stationEnd(int slot) {
+        return stationStart[slot + 1];
+    }
+
+    public Station getStation(int position) {
+        return stations[position];
+    }
+
+    public int stationOrdinal(int position) {
+        return stationOrdinals[position];
+    }
+
+    public double distanceSquared(int slot, double oX, double oY, double oZ) {
+        double dx = x[slot] - oX;
+        double dy = y[slot] - oY;
+        double dz = z[slot] - oZ;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Squared distance from a point to the closest point of a node's bounding box (0 if inside)
+     */
+    public double minDistanceSquared(int node, double oX, double oY, double oZ) {
+        double dx = Math.max(Math.max(minX[node] - oX, oX - maxX[node]), 0);
+        double dy = Math.max(Math.max(minY[node] - oY, oY - maxY[node]), 0);
+        double dz = Math.max(Math.max(minZ[node] - oZ, oZ - maxZ[node]), 0);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * @return A traversal over the leaves of the tree in increasing minimum distance from the point
+     */
+    public DistanceOrderedTraversal traversal(double oX, double oY, double oZ) {
+        return new DistanceOrderedTraversal(this, oX, oY, oZ);
+    }
+
+    /**
+     * @return Up to k systems closest to the point and within the radius, nearest first
+     */
+    public List<StarSystem> nearest(double oX, double oY, double oZ, int k, double radiusLY) {
+        NearestStopCondition results = new NearestStopCondition(k, radiusLY);
+        DistanceOrderedTraversal traversal = traversal(oX, oY, oZ);
+        int leaf;
+
+        while ((leaf = traversal.nextLeaf(results)) != -1) {
+            for (int i = start[leaf]; i < end[leaf]; i++) {
+                results.offer(systems[i], distanceSquared(i, oX, oY, oZ));
+            }
+        }
+
+        return Arrays.asList(results.sorted());
+    }
+
+    private int build(int from, int to) {
+        int node = nodeCount++;
+        start[node] = from;
+        end[node] = to;
+        computeBounds(node);
+
+        if (to - from <= leafSize) {
+            left[node] = -1;
+            right[node] = -1;
+            return node;
+        }
+
+        // Split on the median of the widest axis
+        double spanX = maxX[node] - minX[node];
+        double spanY = maxY[node] - minY[node];
+        double spanZ = maxZ[node] - minZ[node];
+
+        if (spanX >= spanY && spanX >= spanZ) {
+            Arrays.sort(systems, from, to, X_AXIS);
+        } else if (spanY >= spanZ) {
+            Arrays.sort(systems, from, to, Y_AXIS);
+        } else {
+            Arrays.sort(systems, from, to, Z_AXIS);
+        }
+
+        int mid = (from + to) >>> 1;
+        left[node] = build(from, mid);
+        right[node] = build(mid, to);
+        return node;
+    }
+
+    private void computeBounds(int node) {
+        double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY, loZ = Double.POSITIVE_INFINITY;
+        double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY, hiZ = Double.NEGATIVE_INFINITY;
+
+        for (int i = start[node]; i < end[node]; i++) {
+            StarSystem s = systems[i];
+            loX = Math.min(loX, s.getX());
+            loY = Math.min(loY, s.getY());
+            loZ = Math.min(loZ, s.getZ());
+            hiX = Math.max(hiX, s.getX());
+            hiY = Math.max(hiY, s.getY());
+            hiZ = Math.max(hiZ, s.getZ());
+        }
+        minX[node] = loX;
+        minY[node] = loY;
+        minZ[node] = loZ;
+        maxX[node] = hiX;
+        maxY[node] = hiY;
+        maxZ[node] = hiZ;
+    }
+
+    /**
+     * Bounded max-heap of the k nearest systems found so far (farthest at the root). Stops the traversal
+     * once the farthest of them is closer than anything left to visit, or everything left is out of range.
+     */
+    private static class NearestStopCondition extends RadiusStopCondition {
+
+        private final StarSystem[] best;
+        private final double[] bestDistance;
+        private final double radiusSquared;
+        private int count;
+
+        private NearestStopCondition(int k, double radiusLY) {
+            super(radiusLY);
+            best = new StarSystem[k];
+            bestDistance = new double[k];
+            radiusSquared = radiusLY * radiusLY;
+        }
+
+        private void offer(StarSystem system, double distanceSquared) {
+            if (distanceSquared > radiusSquared) {
+                return;
+            }
+            if (count < best.length) {
+                int i = count++;
+                while (i > 0) {     // Sift up
+                    int parent = (i - 1) >>> 1;
+                    if (bestDistance[parent] >= distanceSquared) {
+                        break;
+                    }
+                    best[i] = best[parent];
+                    bestDistance[i] = bestDistance[parent];
+                    i = parent;
+                }
+                best[i] = system;
+                bestDistance[i] = distanceSquared;
+            } else if (count > 0 && distanceSquared < bestDistance[0]) {
+                siftDown(system, distanceSquared, count);
+            }
+        }
+
+        private void siftDown(StarSystem system, double distanceSquared, int size) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && bestDistance[child + 1] > bestDistance[child]) {
+                    child++;
+                }
+                if (bestDistance[child] <= distanceSquared) {
+                    break;
+                }
+                best[i] = best[child];
+                bestDistance[i] = bestDistance[child];
+                i = child;
+            }
+            best[i] = system;
+            bestDistance[i] = distanceSquared;
+        }
+
+        /**
+         * Empties the heap, farthest first, into a nearest first array
+         */
+        private StarSystem[] sorted() {
+            StarSystem[] result = new StarSystem[count];
+            for (int size = count; size > 0; size--) {
+                result[size - 1] = best[0];
+                siftDown(best[size - 1], bestDistance[size - 1], size - 1);
+            }
+            count = 0;
+            return result;
+        }
+
+        @Override
+        public boolean shouldStop(double nextMinDistanceLY) {
+            return super.shouldStop(nextMinDistanceLY)
+                    || (count == best.length && bestDistance[0] <= nextMinDistanceLY * nextMinDistanceLY);
+        }
+    }
+}
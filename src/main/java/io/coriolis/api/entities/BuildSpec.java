@@ -0,0 +1,41 @@
+package io.coriolis.api.entities;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One build in a batch search, fields are the same as the /find/near query string parameters
+ */
+public class BuildSpec {
+
+    @JsonProperty
+    private String ship;
+    @JsonProperty
+    private String standard;
+    @JsonProperty
+    private String internal;
+    @JsonProperty
+    private String hardpoints;
+    @JsonProperty
+    private String utilities;
+
+    public String getShip() {
+        return ship;
+    }
+
+    public String getStandard() {
+        return standard;
+    }
+
+    public String getInternal() {
+        return internal;
+    }
+
+    public String getHardpoints() {
+        return hardpoints;
+    }
+
+    public String getUtilities() {
+        return utilities;
+    }
+
+}
@@ -0,0 +1,47 @@
+package io.coriolis.api.entities;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class BuildTour {
+
+    @JsonProperty
+    private List<TourStop> stops;
+    @JsonProperty
+    private boolean complete;
+    @JsonProperty
+    private boolean timedOut;
+    @JsonProperty
+    private double totalDistanceLY;
+
+    public BuildTour(List<TourStop> stops, boolean complete, boolean timedOut, double totalDistanceLY) {
+        this.stops = stops;
+        this.complete = complete;
+        this.timedOut = timedOut;
+        this.totalDistanceLY = Math.round(totalDistanceLY * 100.0) / 100.0;
+    }
+
+    public List<TourStop> getStops() {
+        return stops;
+    }
+
+    /**
+     * @return false if some of the build is not sold anywhere within the search radius (or, on a timeout, anywhere searched)
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return true if planning ran out of time, so stations further out may be missing or the tour may have extra stops
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public double getTotalDistanceLY() {
+        return totalDistanceLY;
+    }
+
+}
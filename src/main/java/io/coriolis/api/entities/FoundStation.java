@@ -0,0 +1,25 @@
+package io.coriolis.api.entities;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class FoundStation {
+
+    @JsonProperty
+    private String systemName;
+    @JsonProperty
+    private Station station;
+
+    public FoundStation(String systemName, Station station) {
+        this.systemName = systemName;
+        this.station = station;
+    }
+
+    public String getSystemName() {
+        return systemName;
+    }
+
+    public Station getStation() {
+        return station;
+    }
+
+}
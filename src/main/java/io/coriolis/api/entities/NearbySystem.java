@@ -0,0 +1,25 @@
+package io.coriolis.api.entities;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class NearbySystem {
+
+    @JsonProperty
+    private StarSystem system;
+    @JsonProperty
+    private double distanceLY;
+
+    public NearbySystem(StarSystem system, double distanceLY) {
+        this.system = system;
+        this.distanceLY = Math.round(distanceLY * 100.0) / 100.0;
+    }
+
+    public StarSystem getSystem() {
+        return system;
+    }
+
+    public double getDistanceLY() {
+        return distanceLY;
+    }
+
+}
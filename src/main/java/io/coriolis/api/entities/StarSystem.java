@@ -1,6 +1,5 @@
 package io.coriolis.api.entities;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.coriolis.api.core.Universe;
 
 import java.util.HashSet;
@@ -16,13 +15,6 @@ public class StarSystem {
     private double y;
     private double z;
 
-    @JsonIgnore
-    private int sectorX;
-    @JsonIgnore
-    private int sectorY;
-    @JsonIgnore
-    private int sectorZ;
-
     public StarSystem(int id, String name, double x, double y, double z, boolean needsPermit) {
         this.id = id;
         this.systemName = name;
@@ -31,6 +23,14 @@ public class StarSystem {
         setCoordinates(x, y, z);
     }
 
+    /**
+     * Copy sharing the stations, but not the set holding them
+     */
+    public StarSystem(StarSystem system) {
+        this(system.getId(), system.getSystemName(), system.getX(), system.getY(), system.getZ(), system.getNeedsPermit());
+        this.stations.addAll(system.getStations());
+    }
+
     public int getId() {
         return id;
     }
@@ -77,26 +77,10 @@ public class StarSystem {
         return null;
     }
 
-    public int getSectorX() {
-        return sectorX;
-    }
-
-    public int getSectorY() {
-        return sectorY;
-    }
-
-    public int getSectorZ() {
-        return sectorZ;
-    }
-
     public boolean hasCoordinates(double x, double y, double z) {
         return this.x == x && this.y == y && this.z == z;
     }
 
-    public boolean isInSectorWithCoordinates(double x, double y, double z) {
-        return sectorX == Universe.coordinateToSector(x) && sectorY == Universe.coordinateToSector(y) && sectorZ == Universe.coordinateToSector(z);
-    }
-
     public double lightYearsFrom(StarSystem system) {
         return Universe.lightYearsBetween(this.x, this.y, this.z, system.getX(), system.getY(), system.getZ());
     }
@@ -133,9 +117,6 @@ public class StarSystem {
         this.x = x;
         this.y = y;
         this.z = z;
-        sectorX = Universe.coordinateToSector(x);
-        sectorY = Universe.coordinateToSector(y);
-        sectorZ = Universe.coordinateToSector(z);
     }
 
     public void add(Station station) {
@@ -17,6 +17,8 @@ public class Station {
     private int id;
     @JsonIgnore
     private int systemId;
+    @JsonIgnore
+    private int ordinal;
     @JsonProperty
     private String stationName;
     @JsonProperty
@@ -74,6 +76,28 @@ public class Station {
         }
     }
 
+    /**
+     * Copy sharing the ship and module sets, which are replaced rather than modified on update
+     */
+    public Station(Station station) {
+        this.id = station.id;
+        this.systemId = station.systemId;
+        this.ordinal = station.ordinal;
+        this.stationName = station.stationName;
+        this.distanceLs = station.distanceLs;
+        this.allegiance = station.allegiance;
+        this.padSize = station.padSize;
+        this.stationType = station.stationType;
+        this.hasShipyard = station.hasShipyard;
+        this.hasOutfitting = station.hasOutfitting;
+        this.lastUpdated = station.lastUpdated;
+        this.standardModules = station.standardModules;
+        this.internalModules = station.internalModules;
+        this.hardpointModules = station.hardpointModules;
+        this.utilityModules = station.utilityModules;
+        this.ships = station.ships;
+    }
+
     public int getId() {
         return id;
     }
@@ -86,6 +110,11 @@ public class Station {
         return systemId;
     }
 
+    @JsonIgnore
+    public int getOrdinal() {
+        return ordinal;
+    }
+
     public Integer getDistanceLs() {
         return distanceLs;
     }
@@ -126,6 +155,11 @@ public class Station {
         return ships != null && ships.contains(ship);
     }
 
+    @JsonIgnore
+    public EnumSet<Ship> getShipSet() {
+        return ships;
+    }
+
     @JsonIgnore
     public ModuleSet getStandardSet() {
         return standardModules;
@@ -228,6 +262,10 @@ public class Station {
         this.id = id;
     }
 
+    public void setOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+    }
+
     public void setHasShipyard(boolean hasShipyard) {
         this.hasShipyard = hasShipyard;
     }
@@ -268,6 +306,26 @@ public class Station {
         refreshLastUpdated();
     }
 
+    /**
+     * Takes the ships and shipyard flag of another copy of this station
+     */
+    public void setShipyardFrom(Station station) {
+        this.ships = station.ships;
+        this.hasShipyard = station.hasShipyard;
+    }
+
+    /**
+     * Takes the modules, outfitting flag and update time of another copy of this station
+     */
+    public void setOutfittingFrom(Station station) {
+        this.standardModules = station.standardModules;
+        this.internalModules = station.internalModules;
+        this.hardpointModules = station.hardpointModules;
+        this.utilityModules = station.utilityModules;
+        this.hasOutfitting = station.hasOutfitting;
+        this.lastUpdated = station.lastUpdated;
+    }
+
     public void refreshLastUpdated() {
         this.lastUpdated = DateTime.now();
     }
@@ -0,0 +1,46 @@
+package io.coriolis.api.entities;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class TourStop {
+
+    @JsonProperty
+    private Station station;
+    @JsonProperty
+    private String systemName;
+    private boolean hasShip;
+    @JsonProperty
+    private int modulesFound;
+    @JsonProperty
+    private double legDistanceLY;
+
+    public TourStop(String systemName, Station station, boolean hasShip, int modulesFound, double legDistanceLY) {
+        this.systemName = systemName;
+        this.station = station;
+        this.hasShip = hasShip;
+        this.modulesFound = modulesFound;
+        this.legDistanceLY = Math.round(legDistanceLY * 100.0) / 100.0;
+    }
+
+    public String getSystemName() {
+        return systemName;
+    }
+
+    public Station getStation() {
+        return station;
+    }
+
+    @JsonProperty("hasShip")
+    public boolean hasShip() {
+        return hasShip;
+    }
+
+    public int getModulesFound() {
+        return modulesFound;
+    }
+
+    public double getLegDistanceLY() {
+        return legDistanceLY;
+    }
+
+}
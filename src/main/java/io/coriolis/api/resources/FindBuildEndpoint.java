@@ -7,15 +7,19 @@ import io.coriolis.api.core.*;
 import io.coriolis.api.core.modules.*;
 import io.coriolis.api.core.modules.exceptions.UnknownIdException;
 import io.coriolis.api.core.modules.exceptions.UnknownShipException;
+import io.coriolis.api.entities.BuildSpec;
 import io.coriolis.api.entities.BuildStationCandidate;
+import io.coriolis.api.entities.BuildTour;
 import io.coriolis.api.entities.StarSystem;
 import io.coriolis.api.resources.exceptions.JsonWebApplicationException;
+import io.coriolis.api.resources.exceptions.UnknownSystemException;
 import io.dropwizard.jersey.caching.CacheControl;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Path("/find")
@@ -23,6 +27,9 @@ import java.util.concurrent.TimeUnit;
 @Produces(MediaType.APPLICATION_JSON)
 public class FindBuildEndpoint {
 
+    public static final int DEFAULT_TOUR_RADIUS_LY = 50;
+    public static final int MAX_BATCH_SIZE = 50;
+
     private Universe universe;
     private Modules modules;
 
@@ -50,62 +57,133 @@ public class FindBuildEndpoint {
             throw new JsonWebApplicationException("Ship and/or modules are required query string parameters", Response.Status.BAD_REQUEST);
         }
 
-        StarSystem system = universe.getSystem(systemName);
+        StarSystem system = getSystem(systemName);
 
-        if (system == null) {
-            throw new JsonWebApplicationException("System does not exist or is not known", Response.Status.NOT_FOUND);
-        }
+        return universe.findNear(system,
+                getShip(shipName),
+                getMatcher("standard", standard),
+                getMatcher("internal", internal),
+                getMatcher("hardpoint", hardpoints),
+                getMatcher("utility", utilities));
+    }
 
-        Ship ship = null;
+    /**
+     * Search for several builds from the same system at once, sharing a single traversal of the galaxy
+     * @param systemName The system name (404 if not found)
+     * @param builds Up to MAX_BATCH_SIZE builds, each with a ship and/or modules
+     * @return The candidates for each build, in the same order as the builds
+     */
+    @POST
+    @Timed
+    @Path("/near/{systemName}/")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public BuildStationCandidate[][] findStationsBatch(@PathParam("systemName") String systemName, List<BuildSpec> builds) {
 
-        if (shipName != null) {
-            try {
-                ship = Ship.fromString(shipName.trim());
-            } catch (UnknownShipException e) {
-                throw new JsonWebApplicationException("Ship name '" + shipName + "' is invalid", Response.Status.BAD_REQUEST);
-            }
+        if (builds == null || builds.isEmpty() || builds.size() > MAX_BATCH_SIZE) {
+            throw new JsonWebApplicationException("Between 1 and " + MAX_BATCH_SIZE + " builds are required", Response.Status.BAD_REQUEST);
         }
 
-        ModuleMatcher s = null;
+        StarSystem system = getSystem(systemName);
+        BuildQuery[] queries = new BuildQuery[builds.size()];
+
+        for (int b = 0; b < queries.length; b++) {
+            BuildSpec build = builds.get(b);
 
-        if (!Strings.isNullOrEmpty(standard)) {
-            try {
-                s = new ModuleMatcher(modules.standardFromIdList(Arrays.asList(standard.split(","))));
-            } catch (UnknownIdException e) {
-                throw new JsonWebApplicationException("Unknown standard module: " + e.getMessage(), Response.Status.BAD_REQUEST);
+            if (build == null || (build.getShip() == null && build.getStandard() == null && build.getInternal() == null && build.getHardpoints() == null && build.getUtilities() == null)) {
+                throw new JsonWebApplicationException("Ship and/or modules are required for build " + b, Response.Status.BAD_REQUEST);
             }
+
+            queries[b] = new BuildQuery(getShip(build.getShip()),
+                    getMatcher("standard", build.getStandard()),
+                    getMatcher("internal", build.getInternal()),
+                    getMatcher("hardpoint", build.getHardpoints()),
+                    getMatcher("utility", build.getUtilities()));
         }
 
-        ModuleMatcher i = null;
+        return universe.findNear(system, queries);
+    }
 
-        if (!Strings.isNullOrEmpty(internal)) {
-            try {
-                i = new ModuleMatcher(modules.internalFromIdList(Arrays.asList(internal.split(","))));
-            } catch (UnknownIdException e) {
-                throw new JsonWebApplicationException("Unknown internal module: " + e.getMessage(), Response.Status.BAD_REQUEST);
-            }
+    /**
+     * Plan the fewest station stops that together sell the whole build
+     * @param systemName The starting system name (404 if not found)
+     * @param radius Search radius in light years (defaults to DEFAULT_TOUR_RADIUS_LY)
+     * @return stops in the order to visit them
+     */
+    @GET
+    @Timed
+    @Path("/tour/{systemName}/")
+    public BuildTour planTour(@PathParam("systemName") String systemName,
+                              @QueryParam("ship") String shipName,
+                              @QueryParam("standard") String standard,
+                              @QueryParam("internal") String internal,
+                              @QueryParam("hardpoints") String hardpoints,
+                              @QueryParam("utilities") String utilities,
+                              @QueryParam("radius") Double radius) {
+
+        if (shipName == null && standard == null && internal == null && hardpoints == null && utilities == null) {
+            throw new JsonWebApplicationException("Ship and/or modules are required query string parameters", Response.Status.BAD_REQUEST);
         }
 
-        ModuleMatcher h = null;
+        if (radius != null && (radius <= 0 || radius > Universe.MAX_SEARCH_RADIUS_LY)) {
+            throw new JsonWebApplicationException("Query param radius must be greater than 0 and at most " + Universe.MAX_SEARCH_RADIUS_LY, Response.Status.BAD_REQUEST);
+        }
 
-        if (!Strings.isNullOrEmpty(hardpoints)) {
-            try {
-                h = new ModuleMatcher(modules.hardpointFromIdList(Arrays.asList(hardpoints.split(","))));
-            } catch (UnknownIdException e) {
-                throw new JsonWebApplicationException("Unknown hardpoint module: " + e.getMessage(), Response.Status.BAD_REQUEST);
-            }
+        StarSystem system = getSystem(systemName);
+
+        return universe.planTour(system,
+                getShip(shipName),
+                getMatcher("standard", standard),
+                getMatcher("internal", internal),
+                getMatcher("hardpoint", hardpoints),
+                getMatcher("utility", utilities),
+                radius != null ? radius : DEFAULT_TOUR_RADIUS_LY);
+    }
+
+    private StarSystem getSystem(String systemName) {
+        StarSystem system = universe.getSystem(systemName);
+
+        if (system == null) {
+            throw new UnknownSystemException(universe.suggestSystemNames(systemName));
         }
+        return system;
+    }
 
-        ModuleMatcher u = null;
+    private Ship getShip(String shipName) {
+        if (shipName == null) {
+            return null;
+        }
+        try {
+            return Ship.fromString(shipName.trim());
+        } catch (UnknownShipException e) {
+            throw new JsonWebApplicationException("Ship name '" + shipName + "' is invalid", Response.Status.BAD_REQUEST);
+        }
+    }
 
-        if (!Strings.isNullOrEmpty(utilities)) {
-            try {
-                u = new ModuleMatcher(modules.utilityFromIdList(Arrays.asList(utilities.split(","))));
-            } catch (UnknownIdException e) {
-                throw new JsonWebApplicationException("Unknown utility module: " + e.getMessage(), Response.Status.BAD_REQUEST);
-            }
+    /**
+     * @param type Module category, used in the error message for unknown ids
+     * @param ids Comma separated module ids
+     * @return A matcher for the ids, or null if there are none
+     */
+    private ModuleMatcher getMatcher(String type, String ids) {
+        if (Strings.isNullOrEmpty(ids)) {
+            return null;
         }
 
-        return universe.findNear(system, ship, s, i, h, u);
+        List<String> idList = Arrays.asList(ids.split(","));
+
+        try {
+            switch (type) {
+                case "standard":
+                    return new ModuleMatcher(modules.standardFromIdList(idList));
+                case "internal":
+                    return new ModuleMatcher(modules.internalFromIdList(idList));
+                case "hardpoint":
+                    return new ModuleMatcher(modules.hardpointFromIdList(idList));
+                default:
+                    return new ModuleMatcher(modules.utilityFromIdList(idList));
+            }
+        } catch (UnknownIdException e) {
+            throw new JsonWebApplicationException("Unknown " + type + " module: " + e.getMessage(), Response.Status.BAD_REQUEST);
+        }
     }
 }
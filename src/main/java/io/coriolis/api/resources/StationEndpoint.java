@@ -0,0 +1,64 @@
+package io.coriolis.api.resources;
+
+import com.codahale.metrics.annotation.Timed;
+import io.coriolis.api.core.NameTrigramIndex;
+import io.coriolis.api.core.StationNameMatch;
+import io.coriolis.api.core.Universe;
+import io.coriolis.api.entities.FoundStation;
+import io.coriolis.api.resources.exceptions.JsonWebApplicationException;
+import io.dropwizard.jersey.caching.CacheControl;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Path("/station")
+@Produces(MediaType.APPLICATION_JSON)
+@CacheControl(maxAge = 1, maxAgeUnit = TimeUnit.HOURS)
+public class StationEndpoint {
+
+    private Universe universe;
+    private int maxResults;
+
+    public StationEndpoint(Universe universe, int maxResults) {
+        this.universe = universe;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Find stations by name in any system
+     * @param name Station name or part of it
+     * @param match exact, prefix or substring (default), a substring must be at least 3 characters long
+     * @param limit Maximum number of stations, defaults to (and is limited to) the configured maximum
+     * @return Matching stations with their system names
+     */
+    @GET
+    @Timed
+    public List<FoundStation> search(@QueryParam("str") String name,
+                                     @QueryParam("match") String match,
+                                     @QueryParam("limit") Integer limit) {
+        StationNameMatch nameMatch = getMatch(match);
+
+        if (name == null || name.isEmpty() || (nameMatch == StationNameMatch.SUBSTRING && name.length() < NameTrigramIndex.MIN_QUERY_LENGTH)) {
+            throw new JsonWebApplicationException("Query param str is required, at least " + NameTrigramIndex.MIN_QUERY_LENGTH + " characters long for a substring match", Response.Status.BAD_REQUEST);
+        }
+        if (limit != null && (limit < 1 || limit > maxResults)) {
+            throw new JsonWebApplicationException("Query param limit must be between 1 and " + maxResults, Response.Status.BAD_REQUEST);
+        }
+
+        return universe.findStationsWithName(name, nameMatch, limit != null ? limit : maxResults);
+    }
+
+    private StationNameMatch getMatch(String match) {
+        if (match == null) {
+            return StationNameMatch.SUBSTRING;
+        }
+        try {
+            return StationNameMatch.valueOf(match.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new JsonWebApplicationException("Query param match must be exact, prefix or substring", Response.Status.BAD_REQUEST);
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package io.coriolis.api.resources;
 
 import com.codahale.metrics.annotation.Timed;
+import io.coriolis.api.entities.NearbySystem;
 import io.coriolis.api.entities.StarSystem;
 import io.coriolis.api.entities.Station;
+import io.coriolis.api.core.NameTrigramIndex;
 import io.coriolis.api.core.Universe;
 import io.coriolis.api.resources.exceptions.JsonWebApplicationException;
+import io.coriolis.api.resources.exceptions.UnknownSystemException;
 import io.dropwizard.jersey.caching.CacheControl;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -18,10 +22,18 @@ import java.util.concurrent.TimeUnit;
 @CacheControl(maxAge = 1, maxAgeUnit = TimeUnit.HOURS)
 public class SystemEndpoint {
 
+    public static final int DEFAULT_COMPLETIONS = 10;
+
     Universe universe;
+    private int maxRadiusLY;
+    private int maxResults;
+    private int maxCompletions;
 
-    public SystemEndpoint(Universe universe) {
+    public SystemEndpoint(Universe universe, int maxRadiusLY, int maxResults, int maxCompletions) {
         this.universe = universe;
+        this.maxRadiusLY = maxRadiusLY;
+        this.maxResults = maxResults;
+        this.maxCompletions = maxCompletions;
     }
 
     /**
@@ -32,13 +44,33 @@ public class SystemEndpoint {
     @GET
     @Timed
     public Set<String> search(@QueryParam("str") String namePart) {
-        if(namePart == null || namePart.length() < 3) {
-            throw new JsonWebApplicationException("Query param str is required to be at least 3 characters long", Response.Status.BAD_REQUEST);
+        if(namePart == null || namePart.length() < NameTrigramIndex.MIN_QUERY_LENGTH) {
+            throw new JsonWebApplicationException("Query param str is required to be at least " + NameTrigramIndex.MIN_QUERY_LENGTH + " characters long", Response.Status.BAD_REQUEST);
         }
 
         return universe.findSystemsWithName(namePart);
     }
 
+    /**
+     * Autocomplete system names
+     * @param prefix Start of the name, at least 1 character
+     * @param limit Maximum number of names, defaults to DEFAULT_COMPLETIONS and is limited to maxCompletions
+     * @return Names starting with the prefix, an exact match first then populated systems, then alphabetical
+     */
+    @GET
+    @Timed
+    @Path("/complete")
+    public List<String> complete(@QueryParam("prefix") String prefix, @QueryParam("limit") Integer limit) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new JsonWebApplicationException("Query param prefix is required", Response.Status.BAD_REQUEST);
+        }
+        if (limit != null && (limit < 1 || limit > maxCompletions)) {
+            throw new JsonWebApplicationException("Query param limit must be between 1 and " + maxCompletions, Response.Status.BAD_REQUEST);
+        }
+
+        return universe.completeSystemName(prefix, limit != null ? limit : Math.min(DEFAULT_COMPLETIONS, maxCompletions));
+    }
+
     /**
      * Get the location and station details for a specific system
      * @param system The system name
@@ -51,12 +83,41 @@ public class SystemEndpoint {
         StarSystem s =  universe.getSystem(system);
 
         if (s == null) {
-            throw new JsonWebApplicationException("System does not exist or is not known", Response.Status.NOT_FOUND);
+            throw new UnknownSystemException(universe.suggestSystemNames(system));
         }
 
         return s;
     }
 
+    /**
+     * Find the systems (and their stations) closest to a system
+     * @param systemName The system name (404 if not found)
+     * @param radius Search radius in light years, defaults to (and is limited to) the configured maximum
+     * @param k Maximum number of systems, defaults to (and is limited to) the configured maximum
+     * @return Systems with their distances, nearest first
+     */
+    @GET
+    @Timed
+    @Path("/{systemName}/near")
+    public NearbySystem[] getNearbySystems(@PathParam("systemName") String systemName,
+                                           @QueryParam("radius") Double radius,
+                                           @QueryParam("k") Integer k) {
+        if (radius != null && (radius <= 0 || radius > maxRadiusLY)) {
+            throw new JsonWebApplicationException("Query param radius must be greater than 0 and at most " + maxRadiusLY, Response.Status.BAD_REQUEST);
+        }
+        if (k != null && (k < 1 || k > maxResults)) {
+            throw new JsonWebApplicationException("Query param k must be between 1 and " + maxResults, Response.Status.BAD_REQUEST);
+        }
+
+        StarSystem system = universe.getSystem(systemName);
+
+        if (system == null) {
+            throw new UnknownSystemException(universe.suggestSystemNames(systemName));
+        }
+
+        return universe.findSystemsNear(system, radius != null ? radius : maxRadiusLY, k != null ? k : maxResults);
+    }
+
     /**
      *
      * @param systemName
@@ -70,7 +131,7 @@ public class SystemEndpoint {
         StarSystem system =  universe.getSystem(systemName);
 
         if (system == null) {
-            throw new JsonWebApplicationException("System does not exist or is not known", Response.Status.NOT_FOUND);
+            throw new UnknownSystemException(universe.suggestSystemNames(systemName));
         }
 
         Station station = system.getStation(stationName);
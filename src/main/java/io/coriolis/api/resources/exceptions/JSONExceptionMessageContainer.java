@@ -1,15 +1,26 @@
 package io.coriolis.api.resources.exceptions;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
 /**
  * Simple container for mapping an exception message to a JSON object
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public final class JSONExceptionMessageContainer {
     private String message;
+    private List<String> suggestions;
 
     public JSONExceptionMessageContainer(String message) {
         this.message = message;
     }
 
+    public JSONExceptionMessageContainer(String message, List<String> suggestions) {
+        this.message = message;
+        this.suggestions = suggestions;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -17,4 +28,8 @@ public final class JSONExceptionMessageContainer {
     public void setMessage(String message) {
         this.message = message;
     }
+
+    public List<String> getSuggestions() {
+        return suggestions;
+    }
 }
\ No newline at end of file
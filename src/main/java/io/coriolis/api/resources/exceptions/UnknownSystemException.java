@@ -0,0 +1,19 @@
+package io.coriolis.api.resources.exceptions;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.WebApplicationException;
+import java.util.List;
+
+/**
+ * HTTP 404 for a system name that isn't known, with the closest known names as suggestions
+ */
+public class UnknownSystemException extends WebApplicationException {
+
+    public UnknownSystemException(List<String> suggestions) {
+        super(Response.status(Response.Status.NOT_FOUND)
+                .entity(new JSONExceptionMessageContainer("System does not exist or is not known", suggestions))
+                .type(MediaType.APPLICATION_JSON).build());
+    }
+
+}
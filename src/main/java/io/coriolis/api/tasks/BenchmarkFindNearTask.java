@@ -0,0 +1,161 @@
+package io.coriolis.api.tasks;
+
+import cern.colt.bitvector.BitVector;
+import com.google.common.collect.ImmutableMultimap;
+import io.coriolis.api.core.Ship;
+import io.coriolis.api.core.Universe;
+import io.coriolis.api.core.modules.ModuleMatcher;
+import io.coriolis.api.core.modules.ModuleSet;
+import io.coriolis.api.core.modules.Modules;
+import io.coriolis.api.core.spatial.QueryStats;
+import io.coriolis.api.core.spatial.SystemKdTree;
+import io.coriolis.api.entities.StarSystem;
+import io.coriolis.api.entities.Station;
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs build searches from systems spread across the published spatial index and reports the leaves, systems
+ * and station positions each search scanned, grouped by how dense the region around the origin is (the distance
+ * to its kth nearest system). Each build is a ship and a few modules from each group sold by a random station
+ * with shipyard and outfitting data, so at least one station can supply all of it. With cells adapting to density
+ * the work per search should stay roughly the same from the core to the outer regions.
+ */
+public class BenchmarkFindNearTask extends Task {
+
+    public static final int DEFAULT_SAMPLES = 1000;
+    public static final int DEFAULT_K = 10;
+    public static final int DEFAULT_MODULES = 3;
+    public static final int DENSITY_BANDS = 4;
+    public static final long SEED = 7;
+
+    private Universe universe;
+
+    public BenchmarkFindNearTask(Universe universe) {
+        super("benchmark-find-near");
+        this.universe = universe;
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) throws Exception {
+        int samples, k, modules;
+        try {
+            samples = intParameter(parameters, "samples", DEFAULT_SAMPLES);
+            k = intParameter(parameters, "k", DEFAULT_K);
+            modules = intParameter(parameters, "modules", DEFAULT_MODULES);
+        } catch (NumberFormatException e) {
+            output.write("Invalid parameter: " + e.getMessage());
+            return;
+        }
+
+        SystemKdTree index = universe.getSnapshot().getSpatialIndex();
+        List<Station> outfitters = new ArrayList<>();
+        samples = Math.min(samples, index.size());
+
+        for (int position = 0; position < index.stationStart(index.size()); position++) {
+            Station station = index.getStation(position);
+            if (station.hasShipyardData() && station.hasOutfittingData() && !station.getShipSet().isEmpty()) {
+                outfitters.add(station);
+            }
+        }
+
+        if (samples < DENSITY_BANDS || k < 1 || modules < 0 || outfitters.isEmpty()) {
+            output.write("Not enough systems, outfitting stations or samples to benchmark");
+            return;
+        }
+
+        // Every build is drawn before timing starts, and the same seed gives the same builds for the same data
+        Random random = new Random(SEED);
+        Modules m = Modules.INSTANCE;
+        StarSystem[] origins = new StarSystem[samples];
+        Ship[] ships = new Ship[samples];
+        ModuleMatcher[][] matchers = new ModuleMatcher[samples][];
+        final double[] kthDistance = new double[samples];
+        Integer[] order = new Integer[samples];
+
+        for (int q = 0; q < samples; q++) {
+            // Slots are in leaf order, so an even stride spreads the origins over the whole index
+            StarSystem origin = index.getSystem((int) ((long) q * index.size() / samples));
+            List<StarSystem> found = index.nearest(origin.getX(), origin.getY(), origin.getZ(), k, Double.POSITIVE_INFINITY);
+            StarSystem kth = found.get(found.size() - 1);
+            Station source = outfitters.get(random.nextInt(outfitters.size()));
+            Ship[] sold = source.getShipSet().toArray(new Ship[0]);
+
+            origins[q] = origin;
+            kthDistance[q] = Universe.lightYearsBetween(origin.getX(), origin.getY(), origin.getZ(), kth.getX(), kth.getY(), kth.getZ());
+            order[q] = q;
+            ships[q] = sold[random.nextInt(sold.length)];
+            matchers[q] = new ModuleMatcher[] {
+                    new ModuleMatcher(sample(source.getStandardSet(), m.createStandardSet(), modules, random)),
+                    new ModuleMatcher(sample(source.getInternalSet(), m.createInternalSet(), modules, random)),
+                    new ModuleMatcher(sample(source.getHardpointSet(), m.createHardpointSet(), modules, random)),
+                    new ModuleMatcher(sample(source.getUtilitySet(), m.createUtilitySet(), modules, random))
+            };
+        }
+
+        QueryStats[] stats = new QueryStats[samples];
+        long started = System.nanoTime();
+
+        for (int q = 0; q < samples; q++) {
+            stats[q] = new QueryStats();
+            universe.findNear(origins[q], ships[q], matchers[q][0], matchers[q][1], matchers[q][2], matchers[q][3], stats[q]);
+        }
+        long elapsedNanos = System.nanoTime() - started;
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(kthDistance[a], kthDistance[b]);
+            }
+        });
+
+        output.println(String.format("%d systems, leaf size %d, %d searches for a ship and up to %d modules per group, %.1f us per search",
+                index.size(), index.leafSize(), samples, modules, elapsedNanos / 1000.0 / samples));
+        output.println("band\tkth LY from\tto\tleaves/search\tsystems/search\tstations/search");
+
+        for (int band = 0; band < DENSITY_BANDS; band++) {
+            int from = band * samples / DENSITY_BANDS;
+            int to = (band + 1) * samples / DENSITY_BANDS;
+            QueryStats total = new QueryStats();
+
+            for (int q = from; q < to; q++) {
+                total.add(stats[order[q]]);
+            }
+            output.println(String.format("%d\t%.2f\t%.2f\t%.1f\t%.1f\t%.1f", band + 1, kthDistance[order[from]],
+                    kthDistance[order[to - 1]], total.leavesPerQuery(), total.systemsPerQuery(), total.stationsPerQuery()));
+        }
+        output.flush();
+    }
+
+    /**
+     * Adds up to count modules picked at random from those sold to the build set
+     */
+    private static ModuleSet sample(ModuleSet sold, ModuleSet build, int count, Random random) {
+        BitVector bits = sold.getSet();
+        int available = bits.cardinality();
+
+        for (int i = 0; i < bits.size() && count > 0; i++) {
+            if (bits.getQuick(i)) {
+                if (random.nextInt(available) < count) {    // Selection sampling keeps every subset equally likely
+                    build.add(i);
+                    count--;
+                }
+                available--;
+            }
+        }
+        return build;
+    }
+
+    private static int intParameter(ImmutableMultimap<String, String> parameters, String name, int defaultValue) {
+        if (!parameters.containsKey(name)) {
+            return defaultValue;
+        }
+        return Integer.parseInt(parameters.get(name).iterator().next());
+    }
+}
@@ -12,6 +12,7 @@ import io.coriolis.api.core.modules.exceptions.UnknownShipException;
 import io.coriolis.api.entities.StarSystem;
 import io.coriolis.api.entities.Station;
 import io.coriolis.api.core.Universe;
+import io.coriolis.api.core.UniverseSnapshot;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
@@ -94,13 +95,14 @@ public class RefreshEDDBStationsTask extends RunnableMonitoredTask {
             if (current != JsonToken.START_ARRAY) {
                 throw new JsonParseException("System JSON does not start with an Array!", jp.getCurrentLocation());
             }
-            // TODO: Universe write lock
+            UniverseSnapshot.Builder next = universe.beginUpdate();   // Readers keep using the published snapshot meanwhile
             while (jp.nextToken() != JsonToken.END_ARRAY) {
                 JsonNode stationNode = jp.readValueAsTree();
-                StarSystem system = universe.getSystem(stationNode.get("system_id").asInt());
+                StarSystem system = next.getSystem(stationNode.get("system_id").asInt());
 
                 if(system != null) {
                     Station s = universe.updateStationFromEDDB(
+                            next,
                             system,
                             stationNode.get("id").asInt(),
                             stationNode.get("name").asText(),
@@ -120,7 +122,7 @@ public class RefreshEDDBStationsTask extends RunnableMonitoredTask {
                     logger.warn("Station " + stationNode.get("name").asText() + " [" + stationNode.get("id").asInt() +  "] in unknown system [" + stationNode.get("system_id").asInt() + "]");
                 }
             }
-
+            universe.publish(next);
         } catch (NullPointerException e) {
             e.printStackTrace();
             executionFailed("NPE Error");
@@ -136,7 +138,7 @@ public class RefreshEDDBStationsTask extends RunnableMonitoredTask {
             executionFailed("Error parsing Station JSON data");
             return;
         } finally {
-            // TODO: Universe release write lock
+            universe.endUpdate();
             stationsJsonFile.delete();
         }
 
@@ -10,6 +10,7 @@ import com.fasterxml.jackson.databind.MappingJsonFactory;
 import com.google.common.collect.ImmutableMultimap;
 import io.coriolis.api.entities.StarSystem;
 import io.coriolis.api.core.Universe;
+import io.coriolis.api.core.UniverseSnapshot;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
@@ -92,11 +93,12 @@ public class RefreshEDDBSystemsTask extends RunnableMonitoredTask {
                 throw new JsonParseException("System JSON does not start with an Array!", jp.getCurrentLocation());
             }
 
-            // TODO: Universe write lock
+            UniverseSnapshot.Builder next = universe.beginUpdate();   // Readers keep using the published snapshot meanwhile
 
             while (jp.nextToken() != JsonToken.END_ARRAY) {
                 JsonNode systemNode = jp.readValueAsTree();
                 StarSystem s = universe.updateSystemFromEDDB(
+                        next,
                         systemNode.get("id").asInt(),
                         systemNode.get("name").asText(),
                         systemNode.get("x").asDouble(),
@@ -108,12 +110,13 @@ public class RefreshEDDBSystemsTask extends RunnableMonitoredTask {
                     systemUpdated++;
                 }
             }
+            universe.publish(next);    // New names go to the name delta, which compacts itself once large
         } catch (IOException e) {
             logger.error("Error parsing System JSON data: " + e.getMessage());
             executionFailed("Error parsing System JSON data");
             return;
         } finally {
-            // TODO: Universe release write lock
+            universe.endUpdate();
             systemsJsonFile.delete();
         }
 
@@ -0,0 +1,158 @@
+package com.BoxOfC.MDAG;
+
+import java.io.PrintWriter;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Builds an unsimplified (node based, mutable) MDAG of generated system names, as the name delta is kept, and
+ * reports its retained heap, build time, contains() and prefix query times next to a TreeSet of the same names.
+ * Names come from a fixed seed so runs on different builds (such as before and after the switch from TreeMap to
+ * array transitions) compare the same input, and it uses no MDAG method newer than that switch.
+ *
+ * Not a unit test, run it by hand with the test classpath: java com.BoxOfC.MDAG.MDAGBenchmark [names [lookups [prefixes]]]
+ * Heap is measured between full collections, so give it a JVM of its own.
+ */
+public class MDAGBenchmark {
+
+    public static final int DEFAULT_NAMES = 200000;
+    public static final int DEFAULT_LOOKUPS = 100000;
+    public static final int DEFAULT_PREFIXES = 200;
+    public static final int PREFIX_LENGTH = 12;
+    public static final long SEED = 7;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NAMES;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_LOOKUPS;
+        int prefixCount = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PREFIXES;
+        PrintWriter output = new PrintWriter(System.out);
+
+        TreeSet<String> names = syntheticNames(count);
+
+        String[] sorted = names.toArray(new String[names.size()]);
+        Random random = new Random(SEED);
+        String[] queries = new String[lookups];
+        String[] prefixes = new String[prefixCount];
+
+        for (int q = 0; q < lookups; q++) {
+            queries[q] = sorted[random.nextInt(sorted.length)];
+        }
+        for (int p = 0; p < prefixCount; p++) {
+            String name = sorted[random.nextInt(sorted.length)];
+            prefixes[p] = name.substring(0, Math.min(name.length(), PREFIX_LENGTH));
+        }
+
+        long before = usedHeap();
+        long started = System.nanoTime();
+        TreeSet<String> treeSet = new TreeSet<>();
+        for (String name : sorted) {
+            treeSet.add(new String(name));  // Its own copies, as the MDAG keeps no strings of the input
+        }
+        long treeSetBuildNanos = System.nanoTime() - started;
+        long treeSetHeap = usedHeap() - before;
+
+        before = usedHeap();
+        started = System.nanoTime();
+        MDAG mdag = new MDAG(names);
+        long mdagBuildNanos = System.nanoTime() - started;
+        long mdagHeap = usedHeap() - before;
+
+        output.println(String.format("%d names, %d transitions, %d lookups, %d prefixes of %d characters",
+                sorted.length, mdag.getTransitionCount(), lookups, prefixCount, PREFIX_LENGTH));
+        output.println("store\theap MB\tbuild ms\tcontains us\tprefix ms\tnames/prefix");
+
+        for (int round = 0; round < 2; round++) {   // The first round warms up both
+            long containsNanos = timeContains(mdag, queries);
+            long[] prefixTotals = timePrefixes(mdag, prefixes);
+            long treeSetContainsNanos = timeContains(treeSet, queries);
+            long[] treeSetPrefixTotals = timePrefixes(treeSet, prefixes);
+
+            if (round == 1) {
+                output.println(String.format("MDAG\t%.1f\t%.0f\t%.2f\t%.2f\t%.1f", mdagHeap / 1048576.0, mdagBuildNanos / 1e6,
+                        containsNanos / 1e3 / lookups, prefixTotals[0] / 1e6 / prefixCount, (double) prefixTotals[1] / prefixCount));
+                output.println(String.format("TreeSet\t%.1f\t%.0f\t%.2f\t%.2f\t%.1f", treeSetHeap / 1048576.0, treeSetBuildNanos / 1e6,
+                        treeSetContainsNanos / 1e3 / lookups, treeSetPrefixTotals[0] / 1e6 / prefixCount, (double) treeSetPrefixTotals[1] / prefixCount));
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * Names shaped like catalogue and procedurally generated ones ("synuefe ab-c d13-245")
+     */
+    private static TreeSet<String> syntheticNames(int count) {
+        String[] sectors = {"col 285 sector", "hip", "lhs", "synuefe", "hyades sector", "wregoe", "pru euq", "eol prou", "plaa aec", "lft"};
+        Random random = new Random(SEED);
+        TreeSet<String> names = new TreeSet<>();
+
+        while (names.size() < count) {
+            String name = sectors[random.nextInt(sectors.length)] + " " + (char) ('a' + random.nextInt(26)) + (char) ('a' + random.nextInt(26))
+                    + "-" + (char) ('a' + random.nextInt(26)) + " " + (char) ('a' + random.nextInt(8)) + random.nextInt(40);
+            names.add(random.nextBoolean() ? name + "-" + random.nextInt(300) : name);
+        }
+        return names;
+    }
+
+    private static long timeContains(MDAG mdag, String[] queries) {
+        long started = System.nanoTime();
+        int found = 0;
+        for (String query : queries) {
+            found += mdag.contains(query) ? 1 : 0;
+        }
+        return checked(System.nanoTime() - started, found, queries.length);
+    }
+
+    private static long timeContains(TreeSet<String> treeSet, String[] queries) {
+        long started = System.nanoTime();
+        int found = 0;
+        for (String query : queries) {
+            found += treeSet.contains(query) ? 1 : 0;
+        }
+        return checked(System.nanoTime() - started, found, queries.length);
+    }
+
+    /**
+     * @return Nanoseconds taken and names found
+     */
+    private static long[] timePrefixes(MDAG mdag, String[] prefixes) {
+        final long[] visited = new long[1];
+        long started = System.nanoTime();
+        for (String prefix : prefixes) {
+            mdag.visitStringsStartingWith(prefix, 0, Integer.MAX_VALUE, new MDAGVisitor() {
+                @Override
+                public boolean visit(char[] path, int length) {
+                    visited[0]++;
+                    return true;
+                }
+            });
+        }
+        return new long[] {System.nanoTime() - started, visited[0]};
+    }
+
+    private static long[] timePrefixes(TreeSet<String> treeSet, String[] prefixes) {
+        long visited = 0;
+        long started = System.nanoTime();
+        for (String prefix : prefixes) {
+            visited += treeSet.subSet(prefix, prefix + Character.MAX_VALUE).size();
+        }
+        return new long[] {System.nanoTime() - started, visited};
+    }
+
+    /**
+     * Uses the result so the loop is not optimized away, every query is of a name in the set
+     */
+    private static long checked(long nanos, int found, int expected) {
+        if (found != expected) {
+            throw new IllegalStateException("Found " + found + " of " + expected);
+        }
+        return nanos;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,166 @@
+package com.BoxOfC.MDAG;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MDAGTest {
+
+    private TreeSet<String> names;
+    private MDAG mdag;
+    private MDAG simplified;
+
+    @Before
+    public void setUp() {
+        names = new TreeSet<>(Arrays.asList("lave", "lave 2", "leesti", "lhs 20", "lhs 3447", "lhs 5", "sol", "solati", "tau ceti"));
+        mdag = new MDAG(names);
+        simplified = new MDAG(names);
+        simplified.simplify();
+    }
+
+    @Test
+    public void visitsEveryStringInOrder() {
+        for (MDAG m : Arrays.asList(mdag, simplified)) {
+            assertThat(visitAll(m, 0, Integer.MAX_VALUE)).containsExactlyElementsOf(names);
+        }
+    }
+
+    @Test
+    public void visitsWithOffsetAndLimit() {
+        List<String> all = new ArrayList<>(names);
+
+        for (MDAG m : Arrays.asList(mdag, simplified)) {
+            assertThat(visitAll(m, 2, 3)).containsExactlyElementsOf(all.subList(2, 5));
+            assertThat(visitAll(m, 8, 10)).containsExactly("tau ceti");
+            assertThat(visitAll(m, 9, 10)).isEmpty();
+            assertThat(visitAll(m, 0, 0)).isEmpty();
+        }
+    }
+
+    @Test
+    public void visitsMatchingStringsOnly() {
+        for (MDAG m : Arrays.asList(mdag, simplified)) {
+            final List<String> prefixed = new ArrayList<>();
+            final List<String> containing = new ArrayList<>();
+            final List<String> ending = new ArrayList<>();
+
+            m.visitStringsStartingWith("lhs", 1, 5, collector(prefixed));
+            m.visitStringsWithSubstring("ti", 0, 10, collector(containing));
+            m.visitStringsEndingWith("ti", 0, 10, collector(ending));
+
+            assertThat(prefixed).containsExactly("lhs 3447", "lhs 5");
+            assertThat(containing).containsExactly("leesti", "solati", "tau ceti");
+            assertThat(ending).containsExactly("leesti", "solati", "tau ceti");
+            assertThat(m.getStringsStartingWith("lave")).containsOnly("lave", "lave 2");
+            assertThat(m.getStringsStartingWith("x")).isEmpty();
+        }
+    }
+
+    @Test
+    public void visitorCanStopTheTraversal() {
+        final List<String> visited = new ArrayList<>();
+
+        mdag.visitAllStrings(0, Integer.MAX_VALUE, new MDAGVisitor() {
+            @Override
+            public boolean visit(char[] path, int length) {
+                visited.add(new String(path, 0, length));
+                return !visited.get(visited.size() - 1).startsWith("lh");
+            }
+        });
+        assertThat(visited).containsExactly("lave", "lave 2", "leesti", "lhs 20");
+    }
+
+    @Test
+    public void sortedBulkBuildMatchesAddingOneAtATime() {
+        Random random = new Random(8);
+        TreeSet<String> many = new TreeSet<>();
+        while (many.size() < 3000) {
+            StringBuilder name = new StringBuilder();
+            for (int c = 1 + random.nextInt(10); c > 0; c--) {
+                name.append("abc d".charAt(random.nextInt(5)));
+            }
+            many.add(name.toString());
+        }
+        List<String> shuffled = new ArrayList<>(many);
+        Collections.shuffle(shuffled, random);
+
+        MDAG bulk = new MDAG(many);
+        MDAG oneAtATime = new MDAG(new ArrayList<String>());
+        for (String name : shuffled) {
+            oneAtATime.addString(name);
+        }
+
+        assertThat(visitAll(bulk, 0, Integer.MAX_VALUE)).containsExactlyElementsOf(many);
+        assertThat(visitAll(oneAtATime, 0, Integer.MAX_VALUE)).containsExactlyElementsOf(many);
+        assertThat(bulk.getTransitionCount()).isEqualTo(oneAtATime.getTransitionCount());
+        assertThat(bulk.getEquivalenceClassCount()).isEqualTo(oneAtATime.getEquivalenceClassCount());
+    }
+
+    @Test
+    public void addsAndRemovesLikeASortedSet() {
+        Random random = new Random(9);
+        TreeSet<String> expected = new TreeSet<>();
+        MDAG m = new MDAG(new ArrayList<String>());
+
+        // A wide alphabet gives nodes many transitions, inserted and removed at every position of their sorted arrays
+        for (int step = 0; step < 5000; step++) {
+            String name = randomName(random, "zayb xc0w9d");
+            if (random.nextInt(3) == 0 && expected.contains(name)) {   // Only strings in the MDAG can be removed
+                m.removeString(name);
+                expected.remove(name);
+            } else {
+                m.addString(name);
+                expected.add(name);
+            }
+        }
+
+        assertThat(visitAll(m, 0, Integer.MAX_VALUE)).containsExactlyElementsOf(expected);
+        for (int probe = 0; probe < 2000; probe++) {
+            String name = randomName(random, "zayb xc0w9d");
+            assertThat(m.contains(name)).isEqualTo(expected.contains(name));
+        }
+        for (String prefix : Arrays.asList("a", "zz", "b x", "0")) {
+            List<String> prefixed = new ArrayList<>();
+            m.visitStringsStartingWith(prefix, 0, Integer.MAX_VALUE, collector(prefixed));
+            assertThat(prefixed).containsExactlyElementsOf(expected.subSet(prefix, prefix + Character.MAX_VALUE));
+        }
+
+        m.simplify();
+        assertThat(visitAll(m, 0, Integer.MAX_VALUE)).containsExactlyElementsOf(expected);
+        for (String name : Arrays.asList("a", "zz", "b x", "0", "9d")) {
+            assertThat(m.contains(name)).isEqualTo(expected.contains(name));
+        }
+    }
+
+    private static String randomName(Random random, String alphabet) {
+        StringBuilder name = new StringBuilder();
+        for (int c = 1 + random.nextInt(5); c > 0; c--) {
+            name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return name.toString();
+    }
+
+    private static List<String> visitAll(MDAG m, int offset, int limit) {
+        List<String> visited = new ArrayList<>();
+        m.visitAllStrings(offset, limit, collector(visited));
+        return visited;
+    }
+
+    private static MDAGVisitor collector(final List<String> visited) {
+        return new MDAGVisitor() {
+            @Override
+            public boolean visit(char[] path, int length) {
+                visited.add(new String(path, 0, length));
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,146 @@
+package io.coriolis.api.core;
+
+import io.coriolis.api.core.spatial.SystemKdTree;
+import io.coriolis.api.entities.BuildStationCandidate;
+import io.coriolis.api.entities.StarSystem;
+import io.coriolis.api.entities.Station;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CandidateHeapTest {
+
+    private static final int CAPACITY = 15;
+
+    private SystemKdTree tree;
+
+    @Before
+    public void setUp() throws Exception {
+        List<StarSystem> systems = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            StarSystem system = new StarSystem(i, "System " + i, i, 0, 0, false);
+            system.add(new Station(i, i, "Station " + i, 100, "None", "L", "Outpost", false, false, null, null, null));
+            systems.add(system);
+        }
+        tree = new SystemKdTree(systems);
+    }
+
+    @Test
+    public void keepsTheHighestScores() {
+        Random random = new Random(5);
+        CandidateHeap heap = new CandidateHeap(CAPACITY);
+        List<Offer> offers = new ArrayList<>();
+
+        for (int slot = 0; slot < tree.size(); slot++) {
+            Offer offer = new Offer(slot, false, 0, random.nextDouble(), random.nextDouble() * 100);
+            offers.add(offer);
+            offer.offerTo(heap, tree);
+        }
+        Collections.sort(offers, new Comparator<Offer>() {
+            @Override
+            public int compare(Offer a, Offer b) {
+                return Double.compare(b.score, a.score);
+            }
+        });
+
+        assertThat(heap.isFull()).isTrue();
+        assertThat(heap.worstScore()).isEqualTo(offers.get(CAPACITY - 1).score);
+        assertThat(stations(heap)).isEqualTo(stations(offers.subList(0, CAPACITY)));
+    }
+
+    @Test
+    public void withTheShipKeepsTheMostModulesThenTheNearest() {
+        Random random = new Random(6);
+        CandidateHeap heap = new CandidateHeap(CAPACITY);
+        List<Offer> offers = new ArrayList<>();
+
+        for (int slot = 0; slot < tree.size(); slot++) {
+            Offer offer = new Offer(slot, true, random.nextInt(4), random.nextDouble(), random.nextDouble() * 100);
+            offers.add(offer);
+            offer.offerTo(heap, tree);
+        }
+        Collections.sort(offers, new Comparator<Offer>() {
+            @Override
+            public int compare(Offer a, Offer b) {
+                if (a.modules != b.modules) {
+                    return b.modules - a.modules;
+                }
+                return Double.compare(a.distanceSquared, b.distanceSquared);
+            }
+        });
+
+        assertThat(heap.worstDistanceSquared()).isEqualTo(offers.get(CAPACITY - 1).distanceSquared);
+        assertThat(stations(heap)).isEqualTo(stations(offers.subList(0, CAPACITY)));
+    }
+
+    @Test
+    public void refusesCandidatesNoBetterThanTheWorstOnceFull() {
+        CandidateHeap heap = new CandidateHeap(2);
+
+        assertThat(new Offer(0, false, 0, 0.5, 1).offerTo(heap, tree)).isTrue();
+        assertThat(new Offer(1, false, 0, 0.7, 1).offerTo(heap, tree)).isTrue();
+        assertThat(new Offer(2, false, 0, 0.5, 1).offerTo(heap, tree)).isFalse();
+        assertThat(new Offer(3, false, 0, 0.6, 1).offerTo(heap, tree)).isTrue();
+        assertThat(heap.size()).isEqualTo(2);
+        assertThat(heap.worstScore()).isEqualTo(0.6);
+    }
+
+    @Test
+    public void candidatesCarryTheStationAndSquareRootedDistance() {
+        CandidateHeap heap = new CandidateHeap(CAPACITY);
+        new Offer(7, true, 2, 1.5, 16).offerTo(heap, tree);
+
+        BuildStationCandidate candidate = heap.toCandidates(tree)[0];
+        assertThat(candidate.getStation()).isSameAs(tree.getStation(tree.stationStart(7)));
+        assertThat(candidate.getSystemName()).isEqualTo(tree.getSystem(7).getSystemName());
+        assertThat(candidate.hasShip()).isTrue();
+        assertThat(candidate.getModulesFound()).isEqualTo(2);
+        assertThat(candidate.getDistanceLY()).isEqualTo(4);
+    }
+
+    private Set<Station> stations(CandidateHeap heap) {
+        Set<Station> stations = new HashSet<>();
+        for (BuildStationCandidate candidate : heap.toCandidates(tree)) {
+            stations.add(candidate.getStation());
+        }
+        return stations;
+    }
+
+    private Set<Station> stations(List<Offer> offers) {
+        Set<Station> stations = new HashSet<>();
+        for (Offer offer : offers) {
+            stations.add(tree.getStation(tree.stationStart(offer.slot)));
+        }
+        return stations;
+    }
+
+    private static class Offer {
+
+        private final int slot;
+        private final boolean ship;
+        private final int modules;
+        private final double score;
+        private final double distanceSquared;
+
+        private Offer(int slot, boolean ship, int modules, double score, double distanceSquared) {
+            this.slot = slot;
+            this.ship = ship;
+            this.modules = modules;
+            this.score = score;
+            this.distanceSquared = distanceSquared;
+        }
+
+        private boolean offerTo(CandidateHeap heap, SystemKdTree tree) {
+            return heap.offer(tree.stationStart(slot), slot, ship, modules, score, distanceSquared);
+        }
+    }
+}
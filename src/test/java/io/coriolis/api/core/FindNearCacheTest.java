@@ -0,0 +1,114 @@
+package io.coriolis.api.core;
+
+import com.codahale.metrics.MetricRegistry;
+import io.coriolis.api.core.modules.ModuleMatcher;
+import io.coriolis.api.core.modules.ModuleSet;
+import io.coriolis.api.core.modules.Modules;
+import io.coriolis.api.core.spatial.SystemKdTree;
+import io.coriolis.api.entities.BuildStationCandidate;
+import io.coriolis.api.entities.StarSystem;
+import io.coriolis.api.entities.Station;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FindNearCacheTest {
+
+    private List<StarSystem> systems;
+    private SystemKdTree tree;
+    private NodeSummaries summaries;
+    private MetricRegistry metrics;
+    private FindNearCache cache;
+    private BuildStationCandidate[] results;
+
+    @BeforeClass
+    public static void loadModules() {
+        Modules.INSTANCE.initialize();
+    }
+
+    @Before
+    public void setUp() {
+        systems = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            systems.add(new StarSystem(i, "System " + i, i, 0, 0, false));
+        }
+        tree = new SystemKdTree(systems, 4);
+        summaries = new NodeSummaries(tree, Modules.INSTANCE);
+        metrics = new MetricRegistry();
+        cache = new FindNearCache(2, metrics);
+        results = new BuildStationCandidate[0];
+    }
+
+    @Test
+    public void servesEqualKeysUntilAVisitedNodeChanges() throws Exception {
+        int visited = leafOf(10);
+        cache.put(key(10, Ship.ADDER, 0), summaries, new int[] {visited, summaries.getVersion(visited)}, results);
+
+        assertThat(cache.get(key(10, Ship.ADDER, 0), summaries)).isSameAs(results);
+
+        summaries.include(systems.get(90), station(90));     // Elsewhere in the tree
+        assertThat(cache.get(key(10, Ship.ADDER, 0), summaries)).isSameAs(results);
+
+        summaries.include(systems.get(10), station(10));
+        assertThat(cache.get(key(10, Ship.ADDER, 0), summaries)).isNull();
+        assertThat(metrics.meter("findNearCacheHits").getCount()).isEqualTo(2);
+        assertThat(metrics.meter("findNearCacheMisses").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void rebuiltSummariesInvalidateEverything() {
+        cache.put(key(10, Ship.ADDER, 0), summaries, new int[0], results);
+
+        assertThat(cache.get(key(10, Ship.ADDER, 0), new NodeSummaries(tree, Modules.INSTANCE))).isNull();
+        assertThat(cache.get(key(10, Ship.ADDER, 0), summaries)).isNull();     // Dropped on the miss
+    }
+
+    @Test
+    public void keysDifferByOriginShipAndModules() {
+        cache.put(key(10, Ship.ADDER, 0), summaries, new int[0], results);
+
+        assertThat(cache.get(key(11, Ship.ADDER, 0), summaries)).isNull();
+        assertThat(cache.get(key(10, Ship.ANACONDA, 0), summaries)).isNull();
+        assertThat(cache.get(key(10, Ship.ADDER, 1), summaries)).isNull();
+        assertThat(cache.get(new FindNearCache.Key(10, Ship.ADDER, null, null, null, null), summaries)).isNull();
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsed() {
+        cache.put(key(1, Ship.ADDER, 0), summaries, new int[0], results);
+        cache.put(key(2, Ship.ADDER, 0), summaries, new int[0], results);
+        cache.get(key(1, Ship.ADDER, 0), summaries);
+        cache.put(key(3, Ship.ADDER, 0), summaries, new int[0], results);
+
+        assertThat(cache.get(key(1, Ship.ADDER, 0), summaries)).isSameAs(results);
+        assertThat(cache.get(key(2, Ship.ADDER, 0), summaries)).isNull();
+        assertThat(cache.get(key(3, Ship.ADDER, 0), summaries)).isSameAs(results);
+    }
+
+    private int leafOf(int systemId) {
+        for (int node = 0; node < tree.nodeCount(); node++) {
+            for (int slot = tree.leafStart(node); tree.isLeaf(node) && slot < tree.leafEnd(node); slot++) {
+                if (tree.getSystem(slot).getId() == systemId) {
+                    return node;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No system " + systemId);
+    }
+
+    private static FindNearCache.Key key(int systemId, Ship ship, int standardModule) {
+        ModuleSet standard = Modules.INSTANCE.createStandardSet();
+        standard.add(standardModule);
+        return new FindNearCache.Key(systemId, ship, new ModuleMatcher(standard), null, null, null);
+    }
+
+    private static Station station(int systemId) throws Exception {
+        return new Station(1000 + systemId, systemId, "Station " + systemId, 100, "None", "L", "Outpost", true, false, Arrays.asList("Adder"), null, null);
+    }
+}
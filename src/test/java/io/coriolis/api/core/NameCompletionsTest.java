@@ -0,0 +1,83 @@
+package io.coriolis.api.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NameCompletionsTest {
+
+    @Test
+    public void exactMatchFirstThenHeaviestThenAlphabetical() {
+        NameCompletions completions = new NameCompletions(
+                new String[] {"lave", "leesti", "lhs 20", "lhs 3447", "lhs 3447 a", "lhs 5", "sol"},
+                new int[] {5, 3, 0, 0, 9, 0, 7});
+
+        assertThat(completions.complete("lhs 3447", 10)).containsExactly("lhs 3447", "lhs 3447 a");
+        assertThat(completions.complete("l", 10)).containsExactly("lhs 3447 a", "lave", "leesti", "lhs 20", "lhs 3447", "lhs 5");
+        assertThat(completions.complete("lhs", 2)).containsExactly("lhs 3447 a", "lhs 20");
+        assertThat(completions.complete("m", 10)).isEmpty();
+        assertThat(completions.complete("", 1)).containsExactly("lhs 3447 a");
+        assertThat(completions.complete("sol", 0)).isEmpty();
+    }
+
+    @Test
+    public void emptyCompletesNothing() {
+        assertThat(new NameCompletions(new String[0], new int[0]).complete("a", 10)).isEmpty();
+    }
+
+    @Test
+    public void matchesSortingEveryCompletion() {
+        Random random = new Random(9);
+        TreeSet<String> sorted = new TreeSet<>();
+
+        while (sorted.size() < 3000) {
+            StringBuilder name = new StringBuilder();
+            for (int c = 1 + random.nextInt(6); c > 0; c--) {
+                name.append((char) ('a' + random.nextInt(4)));
+            }
+            sorted.add(name.toString());
+        }
+        final String[] names = sorted.toArray(new String[sorted.size()]);
+        final int[] weights = new int[names.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextInt(5);
+        }
+        NameCompletions completions = new NameCompletions(names, weights);
+
+        for (int q = 0; q < 500; q++) {
+            final String prefix = names[random.nextInt(names.length)].substring(0, random.nextInt(3));
+            int limit = 1 + random.nextInt(20);
+            List<Integer> matching = new ArrayList<>();
+
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].startsWith(prefix)) {
+                    matching.add(i);
+                }
+            }
+            Collections.sort(matching, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    if (names[a].equals(prefix) != names[b].equals(prefix)) {
+                        return names[a].equals(prefix) ? -1 : 1;
+                    }
+                    if (weights[a] != weights[b]) {
+                        return weights[b] - weights[a];
+                    }
+                    return a - b;
+                }
+            });
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < matching.size() && i < limit; i++) {
+                expected.add(names[matching.get(i)]);
+            }
+            assertThat(completions.complete(prefix, limit)).as(prefix).isEqualTo(expected);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.coriolis.api.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NameTrigramIndexTest {
+
+    @Test
+    public void findsNamesContainingTheSubstring() {
+        NameTrigramIndex index = new NameTrigramIndex(Arrays.asList("sol", "lhs 3447", "shinrarta dezhra", "lhs 20", "solati"));
+
+        assertThat(index.size()).isEqualTo(5);
+        assertThat(index.namesContaining("sol")).containsExactly("sol", "solati");
+        assertThat(index.namesContaining("lhs ")).containsExactly("lhs 3447", "lhs 20");
+        assertThat(index.namesContaining("rta dez")).containsExactly("shinrarta dezhra");
+        assertThat(index.namesContaining("xyz")).isEmpty();
+    }
+
+    @Test
+    public void checksTheTrigramsAreAdjacent() {
+        NameTrigramIndex index = new NameTrigramIndex(Arrays.asList("abcxbcd", "abcd"));
+
+        assertThat(index.namesContaining("abcd")).containsExactly("abcd");
+    }
+
+    @Test
+    public void matchesBruteForceOnRandomNames() {
+        Random random = new Random(2);
+        String alphabet = "abcde -";
+        TreeSet<String> names = new TreeSet<>();
+
+        while (names.size() < 5000) {
+            names.add(randomString(random, alphabet, 1 + random.nextInt(12)));
+        }
+        NameTrigramIndex index = new NameTrigramIndex(names);
+
+        for (int q = 0; q < 1000; q++) {
+            String part = randomString(random, alphabet, NameTrigramIndex.MIN_QUERY_LENGTH + random.nextInt(4));
+            List<String> expected = new ArrayList<>();
+            for (String name : names) {
+                if (name.contains(part)) {
+                    expected.add(name);
+                }
+            }
+            assertThat(index.namesContaining(part)).as(part).isEqualTo(expected);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsQueriesShorterThanATrigram() {
+        new NameTrigramIndex(Arrays.asList("sol")).namesContaining("so");
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder s = new StringBuilder();
+        for (int c = 0; c < length; c++) {
+            s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package io.coriolis.api.core;
+
+import io.coriolis.api.core.modules.ModuleMatcher;
+import io.coriolis.api.core.modules.ModuleSet;
+import io.coriolis.api.core.modules.Modules;
+import io.coriolis.api.core.spatial.NodeFilter;
+import io.coriolis.api.core.spatial.SystemKdTree;
+import io.coriolis.api.entities.StarSystem;
+import io.coriolis.api.entities.Station;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NodeSummariesTest {
+
+    private List<StarSystem> systems;
+    private SystemKdTree tree;
+    private NodeSummaries summaries;
+
+    @BeforeClass
+    public static void loadModules() {
+        Modules.INSTANCE.initialize();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        systems = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            systems.add(new StarSystem(i, "System " + i, i % 10, (i / 10) % 10, i / 100, false));
+        }
+        systems.get(42).add(station(1, 42, Arrays.asList("Adder"), null));
+        systems.get(313).add(station(2, 313, null, standard(0)));
+        tree = new SystemKdTree(systems, 8);
+        summaries = new NodeSummaries(tree, Modules.INSTANCE);
+    }
+
+    @Test
+    public void acceptsOnlyNodesAboveAStationSellingTheShip() {
+        assertAcceptsOnlyNodesAbove(summaries.filterFor(Ship.ADDER, null, null, null, null), 42);
+        assertAcceptsOnlyNodesAbove(summaries.filterFor(Ship.ANACONDA, null, null, null, null));
+    }
+
+    @Test
+    public void acceptsOnlyNodesAboveAStationSellingAModule() {
+        assertAcceptsOnlyNodesAbove(summaries.filterFor(null, new ModuleMatcher(standard(0, 1)), null, null, null), 313);
+        assertAcceptsOnlyNodesAbove(summaries.filterFor(null, new ModuleMatcher(standard(1)), null, null, null));
+        assertAcceptsOnlyNodesAbove(summaries.filterFor(Ship.ADDER, new ModuleMatcher(standard(0)), null, null, null), 42, 313);
+    }
+
+    @Test
+    public void includeAddsToTheSummariesAndBumpsVersionsAbove() throws Exception {
+        StarSystem system = systems.get(250);
+
+        assertThat(summaries.include(system, station(3, 250, Arrays.asList("Anaconda"), null))).isTrue();
+        assertThat(summaries.getChanges()).isEqualTo(1);
+        assertAcceptsOnlyNodesAbove(summaries.filterFor(Ship.ANACONDA, null, null, null, null), 250);
+
+        for (int node = 0; node < tree.nodeCount(); node++) {
+            assertThat(summaries.getVersion(node)).isEqualTo(isAbove(node, slotOf(250)) ? 1 : 0);
+        }
+    }
+
+    @Test
+    public void includeIgnoresSystemsOutsideTheTree() throws Exception {
+        StarSystem outside = new StarSystem(1000, "Outside", 0, 0, 0, false);
+
+        assertThat(summaries.include(outside, station(4, 1000, Arrays.asList("Anaconda"), null))).isFalse();
+        assertThat(summaries.getChanges()).isEqualTo(0);
+        assertThat(summaries.getVersion(SystemKdTree.ROOT)).isEqualTo(0);
+    }
+
+    private void assertAcceptsOnlyNodesAbove(NodeFilter filter, int... systemIds) {
+        for (int node = 0; node < tree.nodeCount(); node++) {
+            boolean above = false;
+            for (int id : systemIds) {
+                above |= isAbove(node, slotOf(id));
+            }
+            assertThat(filter.accept(node)).as("node " + node).isEqualTo(above);
+        }
+    }
+
+    private boolean isAbove(int node, int slot) {
+        return tree.leafStart(node) <= slot && slot < tree.leafEnd(node);
+    }
+
+    private int slotOf(int systemId) {
+        for (int slot = 0; slot < tree.size(); slot++) {
+            if (tree.getSystem(slot).getId() == systemId) {
+                return slot;
+            }
+        }
+        throw new IllegalArgumentException("No system " + systemId);
+    }
+
+    private static Station station(int id, int systemId, List<String> ships, ModuleSet standard) throws Exception {
+        Station station = new Station(id, systemId, "Station " + id, 100, "None", "L", "Outpost", ships != null, standard != null, ships, null, null);
+        if (standard != null) {
+            station.setModules(standard, Modules.INSTANCE.createInternalSet(), Modules.INSTANCE.createHardpointSet(), Modules.INSTANCE.createUtilitySet());
+        }
+        return station;
+    }
+
+    private static ModuleSet standard(int... modules) {
+        ModuleSet set = Modules.INSTANCE.createStandardSet();
+        for (int module : modules) {
+            set.add(module);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,57 @@
+package io.coriolis.api.core;
+
+import cern.colt.bitvector.BitVector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShipIndexTest {
+
+    private ShipIndex index;
+
+    @Before
+    public void setUp() {
+        index = new ShipIndex();
+        index.add(0, EnumSet.of(Ship.ADDER, Ship.ANACONDA));
+        index.add(3, EnumSet.of(Ship.ADDER));
+        index.add(5000, EnumSet.of(Ship.ANACONDA));    // Past the initial capacity
+        index.add(7, null);     // No shipyard data
+    }
+
+    @Test
+    public void stationsWithShip() {
+        assertThat(ordinals(index.stationsWith(Ship.ADDER))).containsExactly(0, 3);
+        assertThat(ordinals(index.stationsWith(Ship.ANACONDA))).containsExactly(0, 5000);
+        assertThat(ordinals(index.stationsWith(Ship.ASP_EXPLORER))).isEmpty();
+    }
+
+    @Test
+    public void removedShipsNoLongerMatch() {
+        index.remove(0, EnumSet.of(Ship.ADDER));
+
+        assertThat(ordinals(index.stationsWith(Ship.ADDER))).containsExactly(3);
+        assertThat(ordinals(index.stationsWith(Ship.ANACONDA))).containsExactly(0, 5000);
+    }
+
+    @Test
+    public void returnsACopy() {
+        index.stationsWith(Ship.ADDER).clear();
+
+        assertThat(ordinals(index.stationsWith(Ship.ADDER))).containsExactly(0, 3);
+    }
+
+    private static List<Integer> ordinals(BitVector bits) {
+        List<Integer> ordinals = new ArrayList<>();
+        for (int i = 0; i < bits.size(); i++) {
+            if (bits.getQuick(i)) {
+                ordinals.add(i);
+            }
+        }
+        return ordinals;
+    }
+}
@@ -0,0 +1,107 @@
+package io.coriolis.api.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StationNameIndexTest {
+
+    private StationNameIndex index;
+
+    @Before
+    public void setUp() {
+        index = new StationNameIndex();
+        index.add(0, "Abraham Lincoln");
+        index.add(1, "Jameson Memorial");
+        index.add(2, "Galileo");
+        index.add(3, "Abraham Lincoln");
+        index.add(4, "Abe Station");
+        index.add(5, "Lincoln Port");
+    }
+
+    @Test
+    public void findsNamesInAnyCase() {
+        assertThat(index.named("abraham LINCOLN", 10)).containsExactly(0, 3);
+        assertThat(index.named("Abraham Lincoln", 1)).containsExactly(0);
+        assertThat(index.named("Abraham", 10)).isEmpty();
+    }
+
+    @Test
+    public void findsPrefixesInNameOrder() {
+        assertThat(index.startingWith("AB", 10)).containsExactly(4, 0, 3);
+        assertThat(index.startingWith("ab", 2)).containsExactly(4, 0);
+        assertThat(index.startingWith("x", 10)).isEmpty();
+    }
+
+    @Test
+    public void findsSubstrings() {
+        assertThat(index.containing("LINCOLN", 10)).containsOnly(0, 3, 5);
+        assertThat(index.containing("lincoln", 2)).hasSize(2);
+        assertThat(index.containing("son mem", 10)).containsExactly(1);
+        assertThat(index.containing("lincolnx", 10)).isEmpty();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void substringsMustBeLongEnough() {
+        index.containing("ab", 10);
+    }
+
+    @Test
+    public void renameReplacesTheOldName() {
+        index.rename(2, "Lave Station");
+
+        assertThat(index.named("galileo", 10)).isEmpty();
+        assertThat(index.containing("lil", 10)).isEmpty();
+        assertThat(index.named("lave station", 10)).containsExactly(2);
+        assertThat(index.containing("station", 10)).containsOnly(2, 4);
+    }
+
+    @Test
+    public void substringsMatchBruteForce() {
+        Random random = new Random(10);
+        List<String> names = new ArrayList<>();
+        index = new StationNameIndex();
+
+        // A small alphabet repeats trigrams within and across names
+        for (int ordinal = 0; ordinal < 500; ordinal++) {
+            names.add(randomName(random));
+            index.add(ordinal, names.get(ordinal));
+        }
+        for (int ordinal = 0; ordinal < 500; ordinal += 7) {
+            names.set(ordinal, randomName(random));
+            index.rename(ordinal, names.get(ordinal));
+        }
+
+        for (int q = 0; q < 200; q++) {
+            String part = randomName(random).substring(0, 3 + random.nextInt(2));
+            List<Integer> expected = new ArrayList<>();
+            for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+                if (names.get(ordinal).toLowerCase().contains(part.toLowerCase())) {
+                    expected.add(ordinal);
+                }
+            }
+            assertThat(index.containing(part, Integer.MAX_VALUE)).containsOnly(toArray(expected)).hasSameSizeAs(expected);
+        }
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int c = 4 + random.nextInt(8); c > 0; c--) {
+            name.append("aAb c".charAt(random.nextInt(5)));
+        }
+        return name.toString();
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
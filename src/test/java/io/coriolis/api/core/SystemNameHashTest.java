@@ -0,0 +1,105 @@
+package io.coriolis.api.core;
+
+import io.coriolis.api.entities.StarSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SystemNameHashTest {
+
+    private List<StarSystem> systems;
+    private SystemNameHash hash;
+
+    @Before
+    public void setUp() {
+        systems = Arrays.asList(system(0, "Sol"), system(1, "LHS 3447"), system(2, "Ålava"), system(3, "Σ Orionis"),
+                system(4, "İota"), system(5, "Tau Ceti"));
+        hash = new SystemNameHash(systems);
+    }
+
+    @Test
+    public void findsNamesInAnyCase() {
+        assertThat(hash.size()).isEqualTo(6);
+        assertThat(hash.get("sol")).isSameAs(systems.get(0));
+        assertThat(hash.get("SOL")).isSameAs(systems.get(0));
+        assertThat(hash.get("lhs 3447")).isSameAs(systems.get(1));
+        assertThat(hash.get("tAU cETI")).isSameAs(systems.get(5));
+    }
+
+    @Test
+    public void findsNonAsciiNames() {
+        assertThat(hash.get("ÅLAVA")).isSameAs(systems.get(2));
+        assertThat(hash.get("ålava")).isSameAs(systems.get(2));
+        assertThat(hash.get("σ ORIONIS")).isSameAs(systems.get(3));
+        assertThat(hash.get("İOTA")).isSameAs(systems.get(4));
+        assertThat(hash.getLowerCased("İota".toLowerCase())).isSameAs(systems.get(4));
+    }
+
+    @Test
+    public void lowerCasedLookupsAreExact() {
+        assertThat(hash.getLowerCased("tau ceti")).isSameAs(systems.get(5));
+        assertThat(hash.getLowerCased("σ orionis")).isSameAs(systems.get(3));
+        assertThat(hash.getLowerCased("Tau Ceti")).isNull();
+    }
+
+    @Test
+    public void missingNamesAreNull() {
+        assertThat(hash.get("Lave")).isNull();
+        assertThat(hash.get("So")).isNull();
+        assertThat(hash.get("Soll")).isNull();
+        assertThat(hash.get("Ålavb")).isNull();
+        assertThat(hash.get("")).isNull();
+        assertThat(new SystemNameHash(Collections.<StarSystem>emptyList()).get("Sol")).isNull();
+    }
+
+    @Test
+    public void lastOfNamesDifferingInCaseIsFound() {
+        StarSystem last = system(6, "SOL");
+        hash = new SystemNameHash(Arrays.asList(systems.get(0), last));
+
+        assertThat(hash.get("Sol")).isSameAs(last);
+    }
+
+    @Test
+    public void findsEveryOneOfManySystems() {
+        List<StarSystem> many = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            many.add(system(i, (i % 3 == 0 ? "Col 285 Sector " : "HIP ") + i));
+        }
+        hash = new SystemNameHash(many);
+
+        for (StarSystem system : many) {
+            assertThat(hash.get(system.getSystemName().toUpperCase())).isSameAs(system);
+            assertThat(hash.getLowerCased(system.getSystemName().toLowerCase())).isSameAs(system);
+        }
+        assertThat(hash.get("HIP 20000")).isNull();
+        assertThat(hash.get("HIP 0")).isNull();
+    }
+
+    @Test
+    public void agreesWithToLowerCaseInTurkishLocale() {
+        Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr"));
+            hash = new SystemNameHash(Arrays.asList(system(0, "IOTA"), system(1, "Lave")));
+
+            assertThat(hash.get("IOTA").getId()).isEqualTo(0);
+            assertThat(hash.getLowerCased("IOTA".toLowerCase()).getId()).isEqualTo(0);
+            assertThat(hash.get("iota")).isNull();
+            assertThat(hash.get("LAVE").getId()).isEqualTo(1);
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private static StarSystem system(int id, String name) {
+        return new StarSystem(id, name, 0, 0, 0, false);
+    }
+}
@@ -0,0 +1,152 @@
+package io.coriolis.api.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SystemNamesTest {
+
+    private SortedSet<String> all;
+    private SystemNames names;
+
+    @Before
+    public void setUp() {
+        all = new TreeSet<>(Arrays.asList("sol", "lhs 3447", "shinrarta dezhra", "lave", "leesti", "diso"));
+        names = SystemNames.compact(all);
+    }
+
+    @Test
+    public void compactHoldsEveryNameWithAnEmptyDelta() {
+        for (String name : all) {
+            assertThat(names.contains(name)).as(name).isTrue();
+        }
+        assertThat(names.contains("so")).isFalse();
+        assertThat(names.deltaSize()).isEqualTo(0);
+        assertThat(names.getCompacted().getSimpleMDAGArray()).isNotNull();
+    }
+
+    @Test
+    public void addedNamesGoToANewDeltaSharingTheCompacted() {
+        SystemNames added = names.withAdded(add("achenar", "sol"), all);
+
+        assertThat(added.contains("achenar")).isTrue();
+        assertThat(added.contains("sol")).isTrue();
+        assertThat(added.deltaSize()).isEqualTo(1);     // Sol is already compacted
+        assertThat(added.getCompacted()).isSameAs(names.getCompacted());
+        assertThat(names.contains("achenar")).isFalse();
+        assertThat(names.deltaSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void compactsOnceTheDeltaGrowsTooLarge() {
+        Set<String> added = new HashSet<>();
+        for (int i = 0; i <= SystemNames.MAX_DELTA_NAMES; i++) {
+            added.add("new " + i);
+        }
+        all.addAll(added);
+        SystemNames compacted = names.withAdded(added, all);
+
+        assertThat(compacted.deltaSize()).isEqualTo(0);
+        assertThat(compacted.getCompacted()).isNotSameAs(names.getCompacted());
+        assertThat(compacted.contains("new 0")).isTrue();
+        assertThat(compacted.contains("sol")).isTrue();
+    }
+
+    @Test
+    public void similarNamesAreClosestFirst() {
+        SystemNames added = names.withAdded(add("lavf"), all);
+
+        assertThat(added.similarTo("lave", 1, 5)).containsExactly("lave", "lavf");
+        assertThat(added.similarTo("lhs 3477", 2, 5)).containsExactly("lhs 3447");
+        assertThat(added.similarTo("soll", 1, 1)).containsExactly("sol");
+        assertThat(added.similarTo("zzz", 2, 5)).isEmpty();
+    }
+
+    @Test
+    public void similarNamesMatchBruteForceAcrossCompactedAndDelta() {
+        Random random = new Random(4);
+        String alphabet = "abcd ";
+        TreeSet<String> every = new TreeSet<>();
+
+        while (every.size() < 4000) {
+            every.add(randomString(random, alphabet, 1 + random.nextInt(9)));
+        }
+        List<String> list = new ArrayList<>(every);
+        SystemNames split = SystemNames.compact(new TreeSet<>(list.subList(0, list.size() - 300)))
+                .withAdded(new HashSet<>(list.subList(list.size() - 300, list.size())), every);
+
+        for (int q = 0; q < 300; q++) {
+            final String target = randomString(random, alphabet, random.nextInt(9));
+            int maxDistance = random.nextInt(3);
+            List<String> expected = new ArrayList<>();
+
+            for (String name : every) {
+                if (distance(name, target) <= maxDistance) {
+                    expected.add(name);
+                }
+            }
+            Collections.sort(expected, new Comparator<String>() {
+                @Override
+                public int compare(String a, String b) {
+                    int byDistance = distance(a, target) - distance(b, target);
+                    return byDistance != 0 ? byDistance : a.compareTo(b);
+                }
+            });
+            assertThat(split.similarTo(target, maxDistance, 5)).as(target).isEqualTo(expected.subList(0, Math.min(5, expected.size())));
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void namesLongerThanAnyIndexedAreNotWalked() {
+        StringBuilder longName = new StringBuilder("sol");
+        while (longName.length() < 1000000) {
+            longName.append('x');
+        }
+
+        assertThat(names.similarTo(longName.toString(), 2, 5)).isEmpty();
+        assertThat(names.similarTo("shinrarta dezhraxx", 2, 5)).containsExactly("shinrarta dezhra");
+        assertThat(SystemNames.compact(new TreeSet<String>()).similarTo("", 0, 5)).isEmpty();
+    }
+
+    private static int distance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                d[i][j] = Math.min(substitution, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder s = new StringBuilder();
+        for (int c = 0; c < length; c++) {
+            s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return s.toString();
+    }
+
+    private Set<String> add(String... added) {
+        all.addAll(Arrays.asList(added));
+        return new HashSet<>(Arrays.asList(added));
+    }
+}
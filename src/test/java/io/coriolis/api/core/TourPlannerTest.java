@@ -0,0 +1,119 @@
+package io.coriolis.api.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TourPlannerTest {
+
+    private static final long SECOND = 1000000000L;
+
+    @Test
+    public void findsTheFewestStopsWhereGreedyWouldNot() {
+        TourPlanner planner = new TourPlanner(6, SECOND);
+        planner.add(items(planner, 0, 1, 2, 3), 1);     // Greedy takes this first and then needs both others
+        int b = planner.add(items(planner, 0, 1, 4), 2);
+        int c = planner.add(items(planner, 2, 3, 5), 3);
+
+        assertThat(planner.plan()).containsOnly(b, c).hasSize(2);
+        assertThat(planner.timedOut()).isFalse();
+    }
+
+    @Test
+    public void prefersNearerStopsOnTies() {
+        TourPlanner planner = new TourPlanner(2, SECOND);
+        planner.add(items(planner, 0, 1), 20);
+        int near = planner.add(items(planner, 0, 1), 5);
+        planner.add(items(planner, 0), 1);
+
+        assertThat(planner.plan()).containsExactly(near);
+    }
+
+    @Test
+    public void coversOnlyWhatSomeCandidateSells() {
+        TourPlanner planner = new TourPlanner(70, SECOND);
+        int a = planner.add(items(planner, 0, 65), 1);
+        planner.add(items(planner), 0);     // Sells nothing asked for
+
+        assertThat(planner.coverable()).isEqualTo(items(planner, 0, 65));
+        assertThat(planner.plan()).containsExactly(a);
+    }
+
+    @Test
+    public void planIsAMinimalCoverOfRandomCandidates() {
+        Random random = new Random(3);
+
+        for (int q = 0; q < 200; q++) {
+            int itemCount = 1 + random.nextInt(90);
+            int candidates = 1 + random.nextInt(12);
+            TourPlanner planner = new TourPlanner(itemCount, SECOND);
+            long[][] sets = new long[candidates][];
+
+            for (int c = 0; c < candidates; c++) {
+                sets[c] = planner.newItemSet();
+                for (int item = 0; item < itemCount; item++) {
+                    if (random.nextInt(4) == 0) {
+                        TourPlanner.set(sets[c], item);
+                    }
+                }
+                planner.add(sets[c], random.nextDouble() * 100);
+            }
+
+            long[] coverable = planner.coverable();
+            int[] plan = planner.plan();
+            int fewest = Integer.MAX_VALUE;
+
+            assertThat(union(sets, plan, coverable.length)).isEqualTo(coverable);
+            for (int mask = 0; mask < 1 << candidates; mask++) {
+                if (Arrays.equals(union(sets, mask, coverable.length), coverable)) {
+                    fewest = Math.min(fewest, Integer.bitCount(mask));
+                }
+            }
+            assertThat(plan.length).isEqualTo(fewest);
+        }
+    }
+
+    @Test
+    public void outOfTimeStillCoversEverything() throws Exception {
+        TourPlanner planner = new TourPlanner(6, 0);
+        planner.add(items(planner, 0, 1, 2, 3), 1);
+        planner.add(items(planner, 0, 1, 4), 2);
+        planner.add(items(planner, 2, 3, 5), 3);
+        Thread.sleep(1);
+
+        assertThat(planner.pastDeadline()).isTrue();
+        assertThat(planner.plan()).hasSize(3);  // The greedy cover
+        assertThat(planner.timedOut()).isTrue();
+    }
+
+    private static long[] items(TourPlanner planner, int... items) {
+        long[] set = planner.newItemSet();
+        for (int item : items) {
+            TourPlanner.set(set, item);
+        }
+        return set;
+    }
+
+    private static long[] union(long[][] sets, int[] chosen, int words) {
+        long[] union = new long[words];
+        for (int c : chosen) {
+            for (int w = 0; w < words; w++) {
+                union[w] |= sets[c][w];
+            }
+        }
+        return union;
+    }
+
+    private static long[] union(long[][] sets, int mask, int words) {
+        long[] union = new long[words];
+        for (int c = 0; c < sets.length; c++) {
+            for (int w = 0; w < words && (mask >> c & 1) != 0; w++) {
+                union[w] |= sets[c][w];
+            }
+        }
+        return union;
+    }
+}
@@ -0,0 +1,390 @@
+package io.coriolis.api.core;
+
+import com.codahale.metrics.MetricRegistry;
+import io.coriolis.api.core.modules.ModuleMatcher;
+import io.coriolis.api.core.modules.ModuleSet;
+import io.coriolis.api.core.modules.Modules;
+import io.coriolis.api.core.spatial.QueryStats;
+import io.coriolis.api.entities.BuildStationCandidate;
+import io.coriolis.api.entities.FoundStation;
+import io.coriolis.api.entities.NearbySystem;
+import io.coriolis.api.entities.StarSystem;
+import io.coriolis.api.entities.Station;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class UniverseTest {
+
+    private MetricRegistry metrics;
+    private Universe universe;
+    private StarSystem origin;
+
+    @BeforeClass
+    public static void loadModules() {
+        Modules.INSTANCE.initialize();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        metrics = new MetricRegistry();
+        universe = new Universe(metrics);
+
+        UniverseSnapshot.Builder next = universe.beginUpdate();
+        for (int i = 1; i <= 50; i++) {
+            universe.updateSystemFromEDDB(next, i, "Sys " + i, i, i % 7, i % 3, false);
+        }
+        universe.publish(next);
+
+        next = universe.beginUpdate();
+        for (int i = 1; i <= 10; i++) {
+            addStation(next, i, 100 + i, "Port " + i, "Adder");
+        }
+        universe.publish(next);
+        origin = universe.getSystem("Sys 1");
+    }
+
+    @Test
+    public void updatesAreInvisibleUntilPublished() throws Exception {
+        Station published = universe.getSystem(5).getStation(105);
+        UniverseSnapshot.Builder next = universe.beginUpdate();
+
+        addStation(next, 30, 130, "Port 30", "Vulture");
+        addStation(next, 5, 105, "Renamed Dock", "Python");
+
+        assertThat(universe.getSystem(30).getStations()).isEmpty();
+        assertThat(universe.getSystem(5).getStation(105)).isSameAs(published);
+        assertThat(published.getStationName()).isEqualTo("Port 5");
+        assertThat(published.hasShip(Ship.PYTHON)).isFalse();
+        assertThat(universe.findStationsWithName("renamed", StationNameMatch.PREFIX, 10)).isEmpty();
+        assertThat(stationsSelling(Ship.VULTURE)).isEqualTo(0);
+        assertThat(stationsSelling(Ship.PYTHON)).isEqualTo(0);
+        assertThat(metrics.counter("stations").getCount()).isEqualTo(10);
+
+        universe.publish(next);
+        Station copy = universe.getSystem(5).getStation(105);
+
+        assertThat(copy).isNotSameAs(published);
+        assertThat(copy.getOrdinal()).isEqualTo(published.getOrdinal());
+        assertThat(copy.hasShip(Ship.PYTHON)).isTrue();
+        assertThat(copy.hasShip(Ship.ADDER)).isFalse();
+        assertThat(universe.findStationsWithName("port 5", StationNameMatch.EXACT, 10)).isEmpty();
+        assertThat(universe.findStationsWithName("renamed dock", StationNameMatch.EXACT, 10).get(0).getStation()).isSameAs(copy);
+        assertThat(stationsSelling(Ship.VULTURE)).isEqualTo(1);
+        assertThat(stationsSelling(Ship.PYTHON)).isEqualTo(1);
+        assertThat(stationsSelling(Ship.ADDER)).isEqualTo(9);
+        assertThat(metrics.counter("stations").getCount()).isEqualTo(11);
+    }
+
+    @Test
+    public void unpublishedUpdateLeavesNothingBehind() throws Exception {
+        UniverseSnapshot.Builder next = universe.beginUpdate();
+
+        addStation(next, 6, 999, "Ghost", "Vulture");
+        addStation(next, 5, 105, "Renamed Dock", "Python");
+        universe.endUpdate();
+
+        assertThat(universe.findStationsWithName("ghost", StationNameMatch.EXACT, 10)).isEmpty();
+        assertThat(universe.getSystem(6).getStations()).hasSize(1);
+        assertThat(stationsSelling(Ship.VULTURE)).isEqualTo(0);
+        assertThat(stationsSelling(Ship.PYTHON)).isEqualTo(0);
+
+        next = universe.beginUpdate();  // The lock was released
+        universe.publish(next);
+    }
+
+    @Test
+    public void concurrentUpdatesRunOneAfterAnother() throws Exception {
+        UniverseSnapshot.Builder first = universe.beginUpdate();
+        universe.updateSystemFromEDDB(first, 51, "New 51", 51, 0, 0, false);
+
+        Thread second = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                UniverseSnapshot.Builder next = universe.beginUpdate();
+                universe.updateSystemFromEDDB(next, 52, "New 52", 52, 0, 0, false);
+                universe.publish(next);
+            }
+        });
+        second.start();
+        second.join(200);
+
+        // The second update waits for the first, while names stay readable
+        assertThat(second.isAlive()).isTrue();
+        assertThat(universe.completeSystemName("sys 4", 3)).containsExactly("Sys 4", "Sys 40", "Sys 41");
+        assertThat(universe.findSystemsWithName("new")).isEmpty();
+
+        universe.publish(first);
+        second.join(5000);
+
+        assertThat(second.isAlive()).isFalse();
+        assertThat(universe.getSystem("New 51")).isNotNull();
+        assertThat(universe.getSystem("New 52")).isNotNull();
+        assertThat(universe.completeSystemName("new", 5)).containsExactly("New 51", "New 52");
+    }
+
+    @Test
+    public void stationNameSearchesHonourTheLimit() throws Exception {
+        UniverseSnapshot.Builder next = universe.beginUpdate();
+        for (int i = 11; i <= 30; i++) {
+            addStation(next, i, 100 + i, "Port " + i, "Adder");  // Indexed before publishing, between the published names
+        }
+
+        for (StationNameMatch match : StationNameMatch.values()) {
+            String name = match == StationNameMatch.EXACT ? "PORT 3" : "PORT";
+            int limit = match == StationNameMatch.EXACT ? 1 : 4;
+            List<FoundStation> found = universe.findStationsWithName(name, match, limit);
+
+            assertThat(found).hasSize(limit);
+            for (FoundStation station : found) {
+                assertThat(station.getStation().getId()).isBetween(101, 110);
+                assertThat(universe.getSystem(station.getStation().getSystemId()).getStation(station.getStation().getId())).isSameAs(station.getStation());
+            }
+        }
+        assertThat(universe.findStationsWithName("port", StationNameMatch.SUBSTRING, 100)).hasSize(10);
+        universe.publish(next);
+
+        assertThat(universe.findStationsWithName("port", StationNameMatch.PREFIX, 100)).hasSize(30);
+        assertThat(universe.findStationsWithName("port 2", StationNameMatch.PREFIX, 5)).hasSize(5);
+        assertThat(universe.findStationsWithName("ort 3", StationNameMatch.SUBSTRING, 100)).hasSize(2);
+    }
+
+    @Test
+    public void shipyardFromEDDNDuringAnUpdateSurvivesThePublish() throws Exception {
+        UniverseSnapshot.Builder next = universe.beginUpdate();
+
+        universe.updateStationFromEDDB(next, next.getSystem(10), 110, "Port 10", 10, "Alliance", "L", "Outpost",
+                true, false, Arrays.asList("Adder"), null);
+        universe.updateStationFromEDDN("Sys 10", "Port 10", Arrays.asList("Vulture"));
+
+        assertThat(universe.getSystem(10).getStation(110).hasShip(Ship.VULTURE)).isTrue();
+        universe.publish(next);
+
+        Station station = universe.getSystem(10).getStation(110);
+        assertThat(station.getAllegiance()).isEqualTo("Alliance");
+        assertThat(station.hasShip(Ship.VULTURE)).isTrue();
+        assertThat(station.hasShip(Ship.ADDER)).isFalse();
+        assertThat(stationsSelling(Ship.VULTURE)).isEqualTo(1);
+        for (BuildStationCandidate candidate : universe.findNear(origin, Ship.ADDER, null, null, null, null)) {
+            assertThat(candidate.getStation()).isNotSameAs(station);
+        }
+    }
+
+    @Test
+    public void outfittingFromEDDNDuringAnUpdateSurvivesThePublish() throws Exception {
+        UniverseSnapshot.Builder next = universe.beginUpdate();
+
+        universe.updateStationFromEDDB(next, next.getSystem(10), 110, "Port 10", 10, "Alliance", "L", "Outpost",
+                true, false, Arrays.asList("Adder"), null);
+        universe.updateStationFromEDDN("Sys 10", "Port 10", standard(0), Modules.INSTANCE.createInternalSet(),
+                Modules.INSTANCE.createHardpointSet(), Modules.INSTANCE.createUtilitySet());
+        universe.publish(next);
+
+        Station station = universe.getSystem(10).getStation(110);
+        BuildStationCandidate[] found = universe.findNear(origin, null, new ModuleMatcher(standard(0)), null, null, null);
+
+        assertThat(station.getAllegiance()).isEqualTo("Alliance");
+        assertThat(station.getStandardSet().has(0)).isTrue();
+        assertThat(found).hasSize(1);
+        assertThat(found[0].getStation()).isSameAs(station);
+    }
+
+    @Test
+    public void shipyardFromEDDNWithoutAnUpdateAppliesAtOnce() throws Exception {
+        universe.updateStationFromEDDN("Sys 10", "Port 10", Arrays.asList("Orca"));
+
+        assertThat(universe.getSystem(10).getStation(110).hasShip(Ship.ORCA)).isTrue();
+        assertThat(stationsSelling(Ship.ORCA)).isEqualTo(1);
+    }
+
+    @Test
+    public void systemsNearExcludeTheOriginAndAreNearestFirst() {
+        StarSystem from = universe.getSystem("Sys 25");
+        NearbySystem[] near = universe.findSystemsNear(from, 4, 100);
+        int within = 0;
+
+        for (int i = 1; i <= 50; i++) {
+            StarSystem system = universe.getSystem(i);
+            if (system != from && from.lightYearsFrom(system) <= 4) {
+                within++;
+            }
+        }
+        assertThat(near).hasSize(within);
+        for (int n = 0; n < near.length; n++) {
+            assertThat(near[n].getSystem()).isNotSameAs(from);
+            assertThat(near[n].getDistanceLY()).isCloseTo(from.lightYearsFrom(near[n].getSystem()), within(0.01));     // Rounded
+            assertThat(from.lightYearsFrom(near[n].getSystem())).isLessThanOrEqualTo(4);
+            if (n > 0) {
+                assertThat(near[n].getDistanceLY()).isGreaterThanOrEqualTo(near[n - 1].getDistanceLY());
+            }
+        }
+        assertThat(universe.findSystemsNear(from, 4, 2)).hasSize(2);
+        assertThat(universe.findSystemsNear(from, 0.5, 10)).isEmpty();
+    }
+
+    @Test
+    public void systemsFarOutsideTheBubbleAreIndexed() throws Exception {
+        UniverseSnapshot.Builder next = universe.beginUpdate();
+        universe.updateSystemFromEDDB(next, 1001, "Beagle Point", -1111.56, -134.22, 65269.75, false);
+        universe.updateSystemFromEDDB(next, 1002, "Near Beagle Point", -1110.56, -134.22, 65269.75, false);
+        addStation(next, 1002, 2002, "Explorer's Anchorage", "Asp Explorer");
+        universe.publish(next);
+
+        StarSystem far = universe.getSystem("beagle point");
+        NearbySystem[] near = universe.findSystemsNear(far, 10, 10);
+        BuildStationCandidate[] found = universe.findNear(far, Ship.ASP_EXPLORER, null, null, null, null);
+
+        assertThat(far.getId()).isEqualTo(1001);
+        assertThat(near).hasSize(1);
+        assertThat(near[0].getSystem().getSystemName()).isEqualTo("Near Beagle Point");
+        assertThat(found).hasSize(1);
+        assertThat(found[0].getStation().getStationName()).isEqualTo("Explorer's Anchorage");
+        assertThat(found[0].getDistanceLY()).isEqualTo(1);
+    }
+
+    @Test
+    public void uncachedSearchCountsItsWork() {
+        QueryStats stats = new QueryStats();
+        BuildStationCandidate[] counted = universe.findNear(origin, Ship.ADDER, null, null, null, null, stats);
+        BuildStationCandidate[] cached = universe.findNear(origin, Ship.ADDER, null, null, null, null);
+
+        assertThat(counted).hasSameSizeAs(cached).hasSize(10);
+        assertThat(stats.leavesPerQuery()).isGreaterThanOrEqualTo(1);
+        assertThat(stats.systemsPerQuery()).isGreaterThanOrEqualTo(10).isLessThanOrEqualTo(50);
+        assertThat(stats.stationsPerQuery()).isEqualTo(10);
+        assertThat(metrics.meter("findNearCacheHits").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void leafSizeCarriesIntoLaterSnapshots() {
+        Universe sized = new Universe(new MetricRegistry(), 4);
+        UniverseSnapshot.Builder next = sized.beginUpdate();
+        for (int i = 1; i <= 50; i++) {
+            sized.updateSystemFromEDDB(next, i, "Sys " + i, i, 0, 0, false);
+        }
+        sized.publish(next);
+
+        assertThat(sized.getSnapshot().getSpatialIndex().leafSize()).isEqualTo(4);
+        assertThat(sized.getSnapshot().getSpatialIndex().size()).isEqualTo(50);
+    }
+
+    @Test
+    public void substringSearchReturnsProperCaseNames() {
+        assertThat(universe.findSystemsWithName("YS 4")).containsOnly("Sys 4", "Sys 40", "Sys 41", "Sys 42", "Sys 43",
+                "Sys 44", "Sys 45", "Sys 46", "Sys 47", "Sys 48", "Sys 49");
+    }
+
+    @Test
+    public void refreshesAddNamesToTheDeltaAndRenamesCompact() {
+        SystemNames before = universe.getSnapshot().getSystemNames();
+        UniverseSnapshot.Builder next = universe.beginUpdate();
+        universe.updateSystemFromEDDB(next, 51, "New 51", 51, 0, 0, false);
+        universe.updateSystemFromEDDB(next, 52, "New 52", 52, 0, 0, false);
+        universe.publish(next);
+
+        SystemNames added = universe.getSnapshot().getSystemNames();
+        assertThat(added.getCompacted()).isSameAs(before.getCompacted());
+        assertThat(added.deltaSize()).isEqualTo(before.deltaSize() + 2);
+        assertThat(universe.completeSystemName("new", 5)).containsExactly("New 51", "New 52");
+
+        next = universe.beginUpdate();
+        universe.updateSystemFromEDDB(next, 52, "Renamed", 52, 0, 0, false);
+        universe.publish(next);
+
+        SystemNames renamed = universe.getSnapshot().getSystemNames();
+        assertThat(renamed.deltaSize()).isEqualTo(0);
+        assertThat(renamed.contains("new 52")).isFalse();
+        assertThat(renamed.contains("renamed")).isTrue();
+    }
+
+    @Test
+    public void suggestionsAreProperCaseAndSkipOverlongNames() {
+        StringBuilder longName = new StringBuilder();
+        while (longName.length() <= Universe.MAX_SUGGESTED_NAME_LENGTH) {
+            longName.append("Sys 1");
+        }
+
+        assertThat(universe.suggestSystemNames("SYS 1x")).startsWith("Sys 1");
+        assertThat(universe.suggestSystemNames(longName.toString())).isEmpty();
+    }
+
+    @Test
+    public void refreshesReportProgressAndBuildTimes() {
+        long updates = metrics.meter("systemUpdates").getCount();
+        long namesBuilds = metrics.timer("systemNamesBuilds").getCount();
+        long spatialBuilds = metrics.timer("spatialIndexBuilds").getCount();
+
+        UniverseSnapshot.Builder next = universe.beginUpdate();
+        universe.updateSystemFromEDDB(next, 51, "New 51", 51, 0, 0, false);
+        universe.updateSystemFromEDDB(next, 52, "New 52", 52, 0, 0, false);
+        universe.publish(next);
+
+        assertThat(metrics.meter("systemUpdates").getCount()).isEqualTo(updates + 2);
+        assertThat(metrics.timer("systemNamesBuilds").getCount()).isEqualTo(namesBuilds + 1);
+        assertThat(metrics.timer("spatialIndexBuilds").getCount()).isEqualTo(spatialBuilds + 1);
+        SystemNames names = universe.getSnapshot().getSystemNames();
+        assertThat(metrics.getGauges().get("systemNamesDelta").getValue()).isEqualTo(names.deltaSize());
+        assertThat(metrics.getGauges().get("systemNamesTransitions").getValue()).isEqualTo(names.getCompacted().getTransitionCount());
+    }
+
+    @Test
+    public void batchSearchMatchesSeparateSearches() throws Exception {
+        Random random = new Random(11);
+        String[] ships = {"Adder", "Python", "Orca", "Vulture"};
+        UniverseSnapshot.Builder next = universe.beginUpdate();
+
+        for (int i = 11; i <= 50; i++) {
+            addStation(next, i, 100 + i, "Port " + i, ships[random.nextInt(ships.length)]);
+        }
+        universe.publish(next);
+        for (int i = 1; i <= 50; i++) {
+            universe.updateStationFromEDDN("Sys " + i, "Port " + i, standard(random.nextInt(4), random.nextInt(4)),
+                    Modules.INSTANCE.createInternalSet(), Modules.INSTANCE.createHardpointSet(), Modules.INSTANCE.createUtilitySet());
+        }
+
+        BuildQuery[] queries = {
+                new BuildQuery(Ship.ADDER, null, null, null, null),
+                new BuildQuery(null, new ModuleMatcher(standard(0, 1)), null, null, null),
+                new BuildQuery(Ship.PYTHON, new ModuleMatcher(standard(2)), null, null, null),
+                new BuildQuery(Ship.ORCA, new ModuleMatcher(standard(0, 1, 2, 3)), null, null, null)
+        };
+        BuildStationCandidate[][] batch = universe.findNear(origin, queries);
+
+        assertThat(batch).hasSameSizeAs(queries);
+        for (int q = 0; q < queries.length; q++) {
+            BuildQuery query = queries[q];
+            BuildStationCandidate[] alone = universe.findNear(origin, query.getShip(), query.getStandard(), null, null, null);
+
+            assertThat(batch[q]).hasSameSizeAs(alone).isNotEmpty();
+            for (int c = 0; c < alone.length; c++) {
+                assertThat(batch[q][c].getStation()).isSameAs(alone[c].getStation());
+                assertThat(batch[q][c].getScore()).isEqualTo(alone[c].getScore());
+                assertThat(batch[q][c].getDistanceLY()).isEqualTo(alone[c].getDistanceLY());
+            }
+        }
+    }
+
+    private void addStation(UniverseSnapshot.Builder next, int systemId, int stationId, String name, String ship) throws Exception {
+        universe.updateStationFromEDDB(next, next.getSystem(systemId), stationId, name, 10, "None", "L", "Outpost",
+                true, false, Arrays.asList(ship), null);
+    }
+
+    private int stationsSelling(Ship ship) {
+        return universe.findNear(origin, ship, null, null, null, null).length;
+    }
+
+    private static ModuleSet standard(int... modules) {
+        ModuleSet set = Modules.INSTANCE.createStandardSet();
+        for (int module : modules) {
+            set.add(module);
+        }
+        return set;
+    }
+}
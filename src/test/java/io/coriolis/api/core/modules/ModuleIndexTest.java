@@ -0,0 +1,86 @@
+package io.coriolis.api.core.modules;
+
+import cern.colt.bitvector.BitVector;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ModuleIndexTest {
+
+    private static final Modules MODULES = Modules.INSTANCE;
+
+    private ModuleIndex index;
+
+    @BeforeClass
+    public static void loadModules() {
+        MODULES.initialize();
+    }
+
+    @Before
+    public void setUp() {
+        index = new ModuleIndex(MODULES);
+        index.add(0, standard(0, 1), null, null, null);
+        index.add(1, standard(0), null, hardpoint(0), null);
+        index.add(5000, standard(1), MODULES.createInternalSet(), null, utility(0));  // Past the initial capacity
+    }
+
+    @Test
+    public void anyMatchesStationsSellingOneOfTheModules() {
+        assertThat(ordinals(index.stationsWithAny(matcher(standard(1)), null, null, null))).containsExactly(0, 5000);
+        assertThat(ordinals(index.stationsWithAny(null, null, matcher(hardpoint(0)), matcher(utility(0))))).containsExactly(1, 5000);
+    }
+
+    @Test
+    public void allMatchesStationsSellingEveryModule() {
+        assertThat(ordinals(index.stationsWithAll(matcher(standard(0, 1)), null, null, null))).containsExactly(0);
+        assertThat(ordinals(index.stationsWithAll(matcher(standard(0)), null, matcher(hardpoint(0)), null))).containsExactly(1);
+        assertThat(ordinals(index.stationsWithAll(matcher(standard(0)), null, null, matcher(utility(0))))).isEmpty();
+    }
+
+    @Test
+    public void removedModulesNoLongerMatch() {
+        index.remove(0, standard(0, 1), null, null, null);
+        index.remove(1, standard(0), null, null, null);
+
+        assertThat(ordinals(index.stationsWithAny(matcher(standard(0, 1)), null, null, null))).containsExactly(5000);
+        assertThat(ordinals(index.stationsWithAny(null, null, matcher(hardpoint(0)), null))).containsExactly(1);
+    }
+
+    private static ModuleSet standard(int... modules) {
+        return with(MODULES.createStandardSet(), modules);
+    }
+
+    private static ModuleSet hardpoint(int... modules) {
+        return with(MODULES.createHardpointSet(), modules);
+    }
+
+    private static ModuleSet utility(int... modules) {
+        return with(MODULES.createUtilitySet(), modules);
+    }
+
+    private static ModuleSet with(ModuleSet set, int... modules) {
+        for (int module : modules) {
+            set.add(module);
+        }
+        return set;
+    }
+
+    private static ModuleMatcher matcher(ModuleSet set) {
+        return new ModuleMatcher(set);
+    }
+
+    static List<Integer> ordinals(BitVector bits) {
+        List<Integer> ordinals = new ArrayList<>();
+        for (int i = 0; i < bits.size(); i++) {
+            if (bits.getQuick(i)) {
+                ordinals.add(i);
+            }
+        }
+        return ordinals;
+    }
+}
@@ -0,0 +1,100 @@
+package io.coriolis.api.core.spatial;
+
+import io.coriolis.api.entities.StarSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DistanceOrderedTraversalTest {
+
+    private static final StopCondition NEVER = new StopCondition() {
+        @Override
+        public boolean shouldStop(double nextMinDistanceLY) {
+            return false;
+        }
+    };
+
+    private SystemKdTree tree;
+
+    @Before
+    public void setUp() {
+        tree = new SystemKdTree(SystemKdTreeTest.randomSystems(1000, new Random(3)), 8);
+    }
+
+    @Test
+    public void visitsEveryLeafOnceByMinimumDistance() {
+        List<Integer> visited = visit(tree.traversal(5, -3, 12), NEVER);
+        double previous = 0;
+
+        assertThat(visited).doesNotHaveDuplicates().containsOnlyElementsOf(leaves()).hasSameSizeAs(leaves());
+        for (int leaf : visited) {
+            double distance = tree.minDistanceSquared(leaf, 5, -3, 12);
+            assertThat(distance).isGreaterThanOrEqualTo(previous);
+            previous = distance;
+        }
+    }
+
+    @Test
+    public void radiusStopsBeforeLeavesEntirelyOutside() {
+        double radius = 15;
+        List<Integer> expected = new ArrayList<>();
+
+        for (int leaf : leaves()) {
+            if (Math.sqrt(tree.minDistanceSquared(leaf, 0, 0, 0)) <= radius) {
+                expected.add(leaf);
+            }
+        }
+        assertThat(visit(tree.traversal(0, 0, 0), new RadiusStopCondition(radius))).containsOnlyElementsOf(expected).hasSameSizeAs(expected);
+    }
+
+    @Test
+    public void filterPrunesWholeSubtrees() {
+        final int pruned = tree.leftChild(SystemKdTree.ROOT);
+        DistanceOrderedTraversal traversal = tree.traversal(0, 0, 0);
+
+        traversal.setFilter(new NodeFilter() {
+            @Override
+            public boolean accept(int node) {
+                return node != pruned;
+            }
+        });
+        List<Integer> visited = visit(traversal, NEVER);
+
+        assertThat(visited).isNotEmpty();
+        for (int leaf : visited) {
+            assertThat(tree.leafStart(leaf)).isGreaterThanOrEqualTo(tree.leafEnd(pruned));
+        }
+    }
+
+    @Test
+    public void emptyTreeHasNoLeaves() {
+        SystemKdTree empty = new SystemKdTree(Collections.<StarSystem>emptyList());
+
+        assertThat(empty.traversal(0, 0, 0).nextLeaf(NEVER)).isEqualTo(-1);
+    }
+
+    private List<Integer> leaves() {
+        List<Integer> leaves = new ArrayList<>();
+        for (int node = 0; node < tree.nodeCount(); node++) {
+            if (tree.isLeaf(node)) {
+                leaves.add(node);
+            }
+        }
+        return leaves;
+    }
+
+    private static List<Integer> visit(DistanceOrderedTraversal traversal, StopCondition stopCondition) {
+        List<Integer> visited = new ArrayList<>();
+        int leaf;
+        while ((leaf = traversal.nextLeaf(stopCondition)) != -1) {
+            visited.add(leaf);
+        }
+        return visited;
+    }
+}
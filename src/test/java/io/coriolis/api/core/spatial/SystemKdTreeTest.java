@@ -0,0 +1,180 @@
+package io.coriolis.api.core.spatial;
+
+import io.coriolis.api.entities.StarSystem;
+import io.coriolis.api.entities.Station;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SystemKdTreeTest {
+
+    private List<StarSystem> systems;
+    private SystemKdTree tree;
+
+    @Before
+    public void setUp() {
+        systems = randomSystems(2000, new Random(1));
+        tree = new SystemKdTree(systems);
+    }
+
+    @Test
+    public void leavesPartitionEverySystem() {
+        int[] leafOf = new int[tree.size()];
+        int covered = 0;
+
+        for (int node = 0; node < tree.nodeCount(); node++) {
+            if (tree.isLeaf(node)) {
+                assertThat(tree.leafEnd(node) - tree.leafStart(node)).isBetween(1, tree.leafSize());
+                for (int slot = tree.leafStart(node); slot < tree.leafEnd(node); slot++) {
+                    leafOf[slot]++;
+                    covered++;
+                    StarSystem system = tree.getSystem(slot);
+                    assertThat(tree.minDistanceSquared(node, system.getX(), system.getY(), system.getZ())).isEqualTo(0);
+                }
+            } else {
+                assertThat(tree.leftChild(node)).isGreaterThan(node);
+                assertThat(tree.rightChild(node)).isGreaterThan(node);
+            }
+        }
+        assertThat(covered).isEqualTo(systems.size());
+        for (int count : leafOf) {
+            assertThat(count).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void leavesHoldAtMostTheLeafSize() {
+        for (int leafSize : new int[] {2, 5, 64}) {
+            SystemKdTree sized = new SystemKdTree(systems, leafSize);
+
+            assertThat(sized.leafSize()).isEqualTo(leafSize);
+            for (int node = 0; node < sized.nodeCount(); node++) {
+                if (sized.isLeaf(node)) {
+                    assertThat(sized.leafEnd(node) - sized.leafStart(node)).isBetween(1, leafSize);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void leafSizeMustAllowASplit() {
+        new SystemKdTree(systems, 1);
+    }
+
+    @Test
+    public void coordinateColumnsFollowSlots() {
+        for (int slot = 0; slot < tree.size(); slot++) {
+            StarSystem system = tree.getSystem(slot);
+            double dx = system.getX() - 3, dy = system.getY() + 4, dz = system.getZ() - 5;
+
+            assertThat(tree.distanceSquared(slot, 3, -4, 5)).isEqualTo(dx * dx + dy * dy + dz * dz);
+            assertThat(tree.distanceSquared(slot, system.getX(), system.getY(), system.getZ())).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void stationsAreLaidOutInSlotOrder() throws Exception {
+        int ordinal = 0;
+        for (StarSystem system : systems) {
+            for (int s = 0; s < system.getId() % 4; s++) {
+                Station station = new Station(ordinal, system.getId(), "Station " + ordinal, 100, "None", "L", "Outpost", false, false, null, null, null);
+                station.setOrdinal(ordinal++);
+                system.add(station);
+            }
+        }
+        tree = new SystemKdTree(systems);
+
+        assertThat(tree.stationStart(0)).isEqualTo(0);
+        assertThat(tree.stationEnd(tree.size() - 1)).isEqualTo(ordinal);
+        for (int slot = 0; slot < tree.size(); slot++) {
+            Set<Station> laidOut = new HashSet<>();
+            for (int position = tree.stationStart(slot); position < tree.stationEnd(slot); position++) {
+                laidOut.add(tree.getStation(position));
+                assertThat(tree.stationOrdinal(position)).isEqualTo(tree.getStation(position).getOrdinal());
+            }
+            assertThat(laidOut).isEqualTo(tree.getSystem(slot).getStations());
+            if (slot > 0) {
+                assertThat(tree.stationStart(slot)).isEqualTo(tree.stationEnd(slot - 1));
+            }
+        }
+    }
+
+    @Test
+    public void nearestMatchesBruteForce() {
+        Random random = new Random(2);
+
+        for (int q = 0; q < 200; q++) {
+            StarSystem origin = systems.get(random.nextInt(systems.size()));
+            double radius = random.nextDouble() * 50;
+            int k = 1 + random.nextInt(20);
+
+            List<StarSystem> expected = byDistance(origin);
+            List<StarSystem> within = new ArrayList<>();
+            for (StarSystem system : expected) {
+                if (within.size() < k && origin.lightYearsFrom(system) <= radius) {
+                    within.add(system);
+                }
+            }
+
+            List<StarSystem> found = tree.nearest(origin.getX(), origin.getY(), origin.getZ(), k, radius);
+            assertThat(distances(origin, found)).containsExactly(distances(origin, within));
+        }
+    }
+
+    @Test
+    public void nearestWithoutRadiusReturnsK() {
+        StarSystem origin = systems.get(0);
+        List<StarSystem> found = tree.nearest(origin.getX(), origin.getY(), origin.getZ(), 25, Double.POSITIVE_INFINITY);
+
+        assertThat(found).hasSize(25);
+        assertThat(distances(origin, found)).containsExactly(distances(origin, byDistance(origin).subList(0, 25)));
+    }
+
+    @Test
+    public void emptyTreeFindsNothing() {
+        SystemKdTree empty = new SystemKdTree(Collections.<StarSystem>emptyList());
+
+        assertThat(empty.size()).isEqualTo(0);
+        assertThat(empty.nearest(0, 0, 0, 10, Double.POSITIVE_INFINITY)).isEmpty();
+    }
+
+    static List<StarSystem> randomSystems(int count, Random random) {
+        List<StarSystem> systems = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            double spread = Math.exp(random.nextGaussian()) * 20;   // Dense core, sparse outskirts
+            systems.add(new StarSystem(i, "System " + i, random.nextGaussian() * spread,
+                    random.nextGaussian() * spread, random.nextGaussian() * spread, false));
+        }
+        return systems;
+    }
+
+    private List<StarSystem> byDistance(final StarSystem origin) {
+        List<StarSystem> sorted = new ArrayList<>(systems);
+        Collections.sort(sorted, new Comparator<StarSystem>() {
+            @Override
+            public int compare(StarSystem a, StarSystem b) {
+                return Double.compare(origin.lightYearsFrom(a), origin.lightYearsFrom(b));
+            }
+        });
+        return sorted;
+    }
+
+    // Compared by distance, as systems at the same distance may come in either order
+    private static Double[] distances(StarSystem origin, List<StarSystem> found) {
+        Double[] distances = new Double[found.size()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = origin.lightYearsFrom(found.get(i));
+        }
+        return distances;
+    }
+}